@@ -0,0 +1,71 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.Optional;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks {@link AddUserAuthToRequestFilter} for an authenticated request, including the
+ * response filter which clears the MDC.
+ *
+ * @author brightSPARK Labs
+ */
+@State(Scope.Thread)
+public class AddUserAuthToRequestFilterBenchmark {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Filter under test. */
+    private AddUserAuthToRequestFilter<InternalUser> filter;
+
+    /** Authenticated request to filter. */
+    private ContainerRequest request;
+
+    // -------------------------------------------------------------------------
+    // SETUP
+    // -------------------------------------------------------------------------
+
+    @Setup
+    public void setup() {
+        filter =
+                new AddUserAuthToRequestFilter<>(
+                        new IdentityPrincipalConverter(),
+                        "user",
+                        BenchmarkFixtures.createJettyRequest());
+        final InternalUser user =
+                ImmutableInternalUser.builder()
+                        .username("test.user")
+                        .firstname("Test")
+                        .lastname("User")
+                        .email(Optional.of("test.user@example.com"))
+                        .groups(ImmutableList.of("/group-0", "/group-1"))
+                        .roles(ImmutableList.of("role-0", "role-1"))
+                        .build();
+        request = BenchmarkFixtures.createRequest();
+        request.setSecurityContext(BenchmarkFixtures.createSecurityContext(user));
+    }
+
+    // -------------------------------------------------------------------------
+    // BENCHMARKS
+    // -------------------------------------------------------------------------
+
+    @Benchmark
+    public ContainerRequest filter() throws IOException {
+        filter.filter(request);
+        filter.filter(request, null);
+        return request;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.jsonwebtoken.Jwts;
+import jakarta.ws.rs.core.SecurityContext;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.eclipse.jetty.io.ByteArrayEndPoint;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnection;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ResourceConfig;
+
+/**
+ * Fixtures shared by the benchmarks.
+ *
+ * @author brightSPARK Labs
+ */
+final class BenchmarkFixtures {
+    // -------------------------------------------------------------------------
+    // CONSTANTS
+    // -------------------------------------------------------------------------
+
+    /** Issuer of the generated tokens. Mirrors a Keycloak realm. */
+    static final String ISSUER = "https://idp.example.com/auth/realms/example";
+
+    /** Key id of the generated tokens. */
+    static final String KEY_ID = "benchmark-key";
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    private BenchmarkFixtures() {}
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a new RSA 2048-bit key pair.
+     *
+     * @return A new RSA 2048-bit key pair.
+     */
+    static KeyPair createKeyPair() {
+        try {
+            final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the base64 encoded public key of the key pair, as would be configured in {@code
+     * signingKey}.
+     *
+     * @param keyPair The key pair.
+     * @return The base64 encoded public key of the key pair.
+     */
+    static String encodePublicKey(final KeyPair keyPair) {
+        return Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    }
+
+    /**
+     * Returns a signed JWT shaped like an access token issued by Keycloak, including roles nested
+     * under {@code realm_access} and {@code resource_access}.
+     *
+     * @param keyPair Key pair to sign the token with.
+     * @param roleCount Number of roles to include in each of the realm and client role claims.
+     * @param groupCount Number of groups to include.
+     * @return A signed JWT shaped like an access token issued by Keycloak.
+     */
+    static String createKeycloakJwt(
+            final KeyPair keyPair, final int roleCount, final int groupCount) {
+        final Instant now = Instant.now();
+        final Map<String, Object> claims =
+                ImmutableMap.<String, Object>builder()
+                        .put("jti", UUID.randomUUID().toString())
+                        .put("iat", now.getEpochSecond())
+                        .put("auth_time", now.getEpochSecond())
+                        .put("aud", ImmutableList.of("example", "account"))
+                        .put("sub", UUID.randomUUID().toString())
+                        .put("typ", "Bearer")
+                        .put("azp", "example")
+                        .put("session_state", UUID.randomUUID().toString())
+                        .put("acr", "1")
+                        .put("allowed-origins", ImmutableList.of("https://app.example.com"))
+                        .put(
+                                JwtAuthenticator.CLAIM_FIELD_REALM_ACCESS,
+                                ImmutableMap.of("roles", names("realm-role-", roleCount)))
+                        .put(
+                                JwtAuthenticator.CLAIM_FIELD_RESOURCE_ACCESS,
+                                ImmutableMap.of(
+                                        "example",
+                                        ImmutableMap.of("roles", names("client-role-", roleCount)),
+                                        "account",
+                                        ImmutableMap.of(
+                                                "roles",
+                                                ImmutableList.of(
+                                                        "manage-account",
+                                                        "manage-account-links",
+                                                        "view-profile"))))
+                        .put(JwtAuthenticator.CLAIM_FIELD_GROUPS, names("/group-", groupCount))
+                        .put("scope", "openid profile email")
+                        .put("email_verified", true)
+                        .put("name", "Test User")
+                        .put(JwtAuthenticator.CLAIM_FIELD_USERNAME, "test.user")
+                        .put(JwtAuthenticator.CLAIM_FIELD_FIRSTNAME, "Test")
+                        .put(JwtAuthenticator.CLAIM_FIELD_LASTNAME, "User")
+                        .put(JwtAuthenticator.CLAIM_FIELD_EMAIL, "test.user@example.com")
+                        .build();
+
+        return Jwts.builder()
+                .header()
+                .keyId(KEY_ID)
+                .and()
+                .claims(claims)
+                .issuer(ISSUER)
+                .expiration(Date.from(now.plus(1, ChronoUnit.DAYS)))
+                .signWith(keyPair.getPrivate())
+                .compact();
+    }
+
+    /**
+     * Returns a comma separated list of names, as would be supplied in the {@code X-Auth-Groups}
+     * header.
+     *
+     * @param prefix Prefix of each name.
+     * @param count Number of names.
+     * @return A comma separated list of names.
+     */
+    static String commaSeparatedNames(final String prefix, final int count) {
+        return String.join(",", names(prefix, count));
+    }
+
+    /**
+     * Returns a new Jersey request for {@code GET /resource}.
+     *
+     * @return A new Jersey request.
+     */
+    static ContainerRequest createRequest() {
+        return new ContainerRequest(
+                URI.create("http://localhost/"),
+                URI.create("http://localhost/resource"),
+                "GET",
+                createSecurityContext(null),
+                new MapPropertiesDelegate(),
+                new ResourceConfig());
+    }
+
+    /**
+     * Returns a new Jetty request, as would be injected into filters by Jersey.
+     *
+     * @return A new Jetty request.
+     */
+    static Request createJettyRequest() {
+        final HttpConnection connection =
+                new HttpConnection(
+                        new HttpConfiguration(),
+                        new LocalConnector(new Server()),
+                        new ByteArrayEndPoint(),
+                        false);
+        return connection.getHttpChannel().getRequest();
+    }
+
+    /**
+     * Returns a security context for the supplied principal.
+     *
+     * @param principal The principal, or {@code null} if unauthenticated.
+     * @return A security context for the supplied principal.
+     */
+    static SecurityContext createSecurityContext(final Principal principal) {
+        return new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return principal;
+            }
+
+            @Override
+            public boolean isUserInRole(final String role) {
+                return false;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+
+            @Override
+            public String getAuthenticationScheme() {
+                return SecurityContext.BASIC_AUTH;
+            }
+        };
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a list of names.
+     *
+     * @param prefix Prefix of each name.
+     * @param count Number of names.
+     * @return A list of names.
+     */
+    private static List<String> names(final String prefix, final int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.NoopMetricRegistry;
+import com.google.common.collect.ImmutableList;
+import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.auth.oauth.OAuthCredentialAuthFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.util.Optional;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks {@link InstrumentedChainedAuthFilter#filter} where the delegate which authenticates
+ * the request is the last in the chain. I.e. a {@code httpHeaders} delegate followed by a {@code
+ * jwt} delegate, with the request carrying a bearer token.
+ *
+ * @author brightSPARK Labs
+ */
+@State(Scope.Thread)
+public class ChainedAuthFilterBenchmark {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Filter under test. */
+    private AuthFilter<?, InternalUser> filter;
+
+    /** Request to filter. Its security context is reset before each invocation. */
+    private ContainerRequest request;
+
+    // -------------------------------------------------------------------------
+    // SETUP
+    // -------------------------------------------------------------------------
+
+    @Setup
+    public void setup() {
+        final KeyPair keyPair = BenchmarkFixtures.createKeyPair();
+        final IdentityPrincipalConverter principalConverter = new IdentityPrincipalConverter();
+        final AuthFilter<?, InternalUser> headersFilter =
+                new HeaderFieldsAuthFilter.Builder<InternalUser>()
+                        .setAuthenticator(
+                                new HeaderFieldsAuthenticator<>(
+                                        principalConverter, ImmutableList.of()))
+                        .buildAuthFilter();
+        final AuthFilter<?, InternalUser> jwtFilter =
+                new OAuthCredentialAuthFilter.Builder<InternalUser>()
+                        .setAuthenticator(
+                                new JwtAuthenticator<>(
+                                        principalConverter,
+                                        BenchmarkFixtures.encodePublicKey(keyPair),
+                                        ImmutableList.of(),
+                                        Optional.empty()))
+                        .setPrefix("Bearer")
+                        .buildAuthFilter();
+        final MetricRegistry metricRegistry = new NoopMetricRegistry();
+        filter =
+                new InstrumentedChainedAuthFilter<>(
+                        ImmutableList.of(headersFilter, jwtFilter),
+                        metricRegistry.timer(AuthenticationMetrics.name("chained", "filter")),
+                        metricRegistry.histogram(
+                                AuthenticationMetrics.name("chained", "successful-delegate")),
+                        ExternallyAuthenticatedAuthFilterFactory.DEFAULT_CHALLENGE_PREFIX,
+                        ExternallyAuthenticatedAuthFilterFactory.DEFAULT_REALM);
+
+        request = BenchmarkFixtures.createRequest();
+        request.getHeaders()
+                .putSingle(
+                        HttpHeaders.AUTHORIZATION,
+                        "Bearer " + BenchmarkFixtures.createKeycloakJwt(keyPair, 10, 10));
+    }
+
+    // -------------------------------------------------------------------------
+    // BENCHMARKS
+    // -------------------------------------------------------------------------
+
+    @Benchmark
+    public ContainerRequest filter() throws IOException {
+        request.setSecurityContext(BenchmarkFixtures.createSecurityContext(null));
+        filter.filter(request);
+        return request;
+    }
+}
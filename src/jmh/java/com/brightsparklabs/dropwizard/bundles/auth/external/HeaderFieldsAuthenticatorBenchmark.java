@@ -0,0 +1,68 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableList;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks {@link HeaderFieldsAuthenticator#doAuthenticate(MultivaluedMap)} with increasingly
+ * large {@code X-Auth-Groups} headers.
+ *
+ * @author brightSPARK Labs
+ */
+@State(Scope.Benchmark)
+public class HeaderFieldsAuthenticatorBenchmark {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Number of groups in the {@code X-Auth-Groups} header. */
+    @Param({"10", "100", "1000"})
+    public int groupCount;
+
+    /** Authenticator under test. */
+    private HeaderFieldsAuthenticator<InternalUser> authenticator;
+
+    /** Headers to authenticate. */
+    private MultivaluedMap<String, String> headers;
+
+    // -------------------------------------------------------------------------
+    // SETUP
+    // -------------------------------------------------------------------------
+
+    @Setup
+    public void setup() {
+        authenticator =
+                new HeaderFieldsAuthenticator<>(
+                        new IdentityPrincipalConverter(), ImmutableList.of());
+        headers = new MultivaluedHashMap<>();
+        headers.putSingle("X-Auth-Username", "test.user");
+        headers.putSingle("X-Auth-Given-Name", "Test");
+        headers.putSingle("X-Auth-Family-Name", "User");
+        headers.putSingle("X-Auth-Email", "test.user@example.com");
+        headers.putSingle(
+                "X-Auth-Groups", BenchmarkFixtures.commaSeparatedNames("/group-", groupCount));
+        headers.putSingle("X-Auth-Roles", BenchmarkFixtures.commaSeparatedNames("role-", 10));
+    }
+
+    // -------------------------------------------------------------------------
+    // BENCHMARKS
+    // -------------------------------------------------------------------------
+
+    @Benchmark
+    public InternalUser doAuthenticate() throws AuthenticationDeniedException {
+        return authenticator.doAuthenticate(headers);
+    }
+}
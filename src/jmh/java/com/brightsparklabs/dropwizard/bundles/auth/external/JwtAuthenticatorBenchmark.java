@@ -0,0 +1,74 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableList;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks {@link JwtAuthenticator#doAuthenticate(String)} with tokens shaped like those issued
+ * by Keycloak, with and without the verified token cache.
+ *
+ * @author brightSPARK Labs
+ */
+@State(Scope.Benchmark)
+public class JwtAuthenticatorBenchmark {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Number of realm and client roles in the token. */
+    @Param({"5", "50"})
+    public int roleCount;
+
+    /** Whether the verified token cache is enabled. */
+    @Param({"false", "true"})
+    public boolean tokenCache;
+
+    /** Authenticator under test. */
+    private JwtAuthenticator<InternalUser> authenticator;
+
+    /** Token to authenticate. */
+    private String jwt;
+
+    // -------------------------------------------------------------------------
+    // SETUP
+    // -------------------------------------------------------------------------
+
+    @Setup
+    public void setup() {
+        final KeyPair keyPair = BenchmarkFixtures.createKeyPair();
+        final Optional<VerifiedTokenCache> verifiedTokenCache =
+                tokenCache
+                        ? Optional.of(new VerifiedTokenCache(10_000, Duration.ofMinutes(5)))
+                        : Optional.empty();
+        authenticator =
+                new JwtAuthenticator<>(
+                        new IdentityPrincipalConverter(),
+                        BenchmarkFixtures.encodePublicKey(keyPair),
+                        ImmutableList.of(),
+                        verifiedTokenCache);
+        jwt = BenchmarkFixtures.createKeycloakJwt(keyPair, roleCount, 10);
+    }
+
+    // -------------------------------------------------------------------------
+    // BENCHMARKS
+    // -------------------------------------------------------------------------
+
+    @Benchmark
+    public InternalUser doAuthenticate() throws AuthenticationDeniedException {
+        return authenticator.doAuthenticate(jwt);
+    }
+}
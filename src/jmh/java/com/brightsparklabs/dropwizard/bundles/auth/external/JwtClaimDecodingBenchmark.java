@@ -0,0 +1,81 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableList;
+import java.security.KeyPair;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the allocation and throughput of each {@link JwtAuthenticator.ClaimDecoding} for tokens
+ * carrying many groups and roles. Run with the {@code gc} profiler (the default) and compare the
+ * {@code gc.alloc.rate.norm} (bytes per operation) of each mode.
+ *
+ * @author brightSPARK Labs
+ */
+@State(Scope.Benchmark)
+public class JwtClaimDecodingBenchmark {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** How the claims of each token are decoded. */
+    @Param({"FULL", "STREAMING"})
+    public JwtAuthenticator.ClaimDecoding claimDecoding;
+
+    /** Number of groups in the token. Realm and client roles are each a tenth of this. */
+    @Param({"50", "500"})
+    public int groupCount;
+
+    /** Authenticator under test. */
+    private JwtAuthenticator<InternalUser> authenticator;
+
+    /** Token to authenticate. */
+    private String jwt;
+
+    // -------------------------------------------------------------------------
+    // SETUP
+    // -------------------------------------------------------------------------
+
+    @Setup
+    public void setup() {
+        final KeyPair keyPair = BenchmarkFixtures.createKeyPair();
+        authenticator =
+                new JwtAuthenticator<>(
+                        new IdentityPrincipalConverter(),
+                        JwtAuthenticator.createJwtParser(
+                                BenchmarkFixtures.encodePublicKey(keyPair), claimDecoding),
+                        ImmutableList.of(),
+                        Optional.empty());
+        jwt = BenchmarkFixtures.createKeycloakJwt(keyPair, groupCount / 10, groupCount);
+    }
+
+    // -------------------------------------------------------------------------
+    // BENCHMARKS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Authenticates the token without reading the user's groups or roles, as when resources only
+     * require an authenticated user.
+     */
+    @Benchmark
+    public String authenticate() throws AuthenticationDeniedException {
+        return authenticator.doAuthenticate(jwt).getUsername();
+    }
+
+    /** Authenticates the token and reads the user's roles, as when resources are role-gated. */
+    @Benchmark
+    public boolean authenticateAndReadRoles() throws AuthenticationDeniedException {
+        return authenticator.doAuthenticate(jwt).getRoles().contains("realm-role-0");
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableList;
+import java.security.KeyPair;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks authorizing users which are not held in a token cache, i.e. each request authenticates
+ * a new user which is then authorized once. Compares {@link RoleBitSetAuthorizer} against checking
+ * the role names in {@link InternalUser#getRoles()}.
+ *
+ * @author brightSPARK Labs
+ */
+@State(Scope.Benchmark)
+public class RoleBitSetAuthorizerBenchmark {
+    // -------------------------------------------------------------------------
+    // CONSTANTS
+    // -------------------------------------------------------------------------
+
+    /** Role to authorize each user against. Registered, as if named in {@code @RolesAllowed}. */
+    private static final String ROLE = "client-role-1";
+
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** How the claims of each token are decoded. */
+    @Param({"FULL", "STREAMING"})
+    public JwtAuthenticator.ClaimDecoding claimDecoding;
+
+    /** Number of roles in each of the realm and client role claims. */
+    @Param({"10", "100"})
+    public int roleCount;
+
+    /** Authenticator producing a new user for each request. */
+    private JwtAuthenticator<InternalUser> authenticator;
+
+    /** Authorizer under test. */
+    private RoleBitSetAuthorizer authorizer;
+
+    /** Token to authenticate. */
+    private String jwt;
+
+    // -------------------------------------------------------------------------
+    // SETUP
+    // -------------------------------------------------------------------------
+
+    @Setup
+    public void setup() {
+        final KeyPair keyPair = BenchmarkFixtures.createKeyPair();
+        authenticator =
+                new JwtAuthenticator<>(
+                        new IdentityPrincipalConverter(),
+                        JwtAuthenticator.createJwtParser(
+                                BenchmarkFixtures.encodePublicKey(keyPair), claimDecoding),
+                        ImmutableList.of(),
+                        Optional.empty());
+        jwt = BenchmarkFixtures.createKeycloakJwt(keyPair, roleCount, 50);
+
+        // Mirror the roles a typical application names in its @RolesAllowed annotations.
+        authorizer = new RoleBitSetAuthorizer();
+        for (int i = 0; i < 20; i++) {
+            authorizer.getRoleRegistry().register("client-role-" + i);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // BENCHMARKS
+    // -------------------------------------------------------------------------
+
+    /** Authenticates the token and authorizes the user via the role names. */
+    @Benchmark
+    public boolean authorizeByName() throws AuthenticationDeniedException {
+        return authenticator.doAuthenticate(jwt).getRoles().contains(ROLE);
+    }
+
+    /** Authenticates the token and authorizes the user via {@link RoleBitSetAuthorizer}. */
+    @Benchmark
+    public boolean authorizeByBitSet() throws AuthenticationDeniedException {
+        return authorizer.authorize(authenticator.doAuthenticate(jwt), ROLE, null);
+    }
+}
@@ -9,16 +9,17 @@ package com.brightsparklabs.dropwizard.bundles.auth.external;
 
 import static java.util.Objects.requireNonNull;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Context;
 import java.io.IOException;
 import java.security.Principal;
 import java.util.Optional;
 import org.eclipse.jetty.security.DefaultUserIdentity;
 import org.eclipse.jetty.security.UserAuthentication;
-import org.eclipse.jetty.server.HttpConnection;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.UserIdentity;
 import org.slf4j.MDC;
@@ -30,6 +31,15 @@ import org.slf4j.MDC;
  * <p>By adding the authenticated user's username to the request's authentication, it can be logged
  * as part of auditing.
  *
+ * <p>The {@link InternalUser} stored against {@link ExternalAuthenticator#INTERNAL_USER_PROPERTY}
+ * by the authenticator is used when present. Otherwise the authenticated principal is converted.
+ *
+ * <p>The username is also added to the MDC (Mapped Diagnostic Context) of the thread which filters
+ * the request, and removed when the response is sent. {@link ExternallyAuthenticatedAuthBundle}
+ * also removes it before and after the servlet container handles each request, so it is removed
+ * even if the request is suspended. Use {@link
+ * MdcPropagatingExecutor} to carry the username to threads which continue asynchronous requests.
+ *
  * @param <P> the type of principal retrieved from authentication
  * @author brightSPARK Labs
  */
@@ -46,6 +56,12 @@ public class AddUserAuthToRequestFilter<P extends Principal>
     /** MDC key to store the authenticated user's username against. */
     private final String mdcUsernameField;
 
+    /**
+     * The current request. Injected by Jersey as a proxy to the request being filtered, so it is
+     * not tied to the thread the request arrived on.
+     */
+    @Context private HttpServletRequest servletRequest;
+
     // -------------------------------------------------------------------------
     // PUBLIC METHODS
     // -------------------------------------------------------------------------
@@ -63,18 +79,30 @@ public class AddUserAuthToRequestFilter<P extends Principal>
         this.mdcUsernameField = mdcUsernameField;
     }
 
+    /**
+     * Constructor for use outside of Jersey, where the request cannot be injected.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param mdcUsernameField MDC key to store the authenticated user's username against.
+     * @param servletRequest The request to add the authentication to.
+     */
+    AddUserAuthToRequestFilter(
+            final PrincipalConverter<P> principalConverter,
+            final String mdcUsernameField,
+            final HttpServletRequest servletRequest) {
+        this(principalConverter, mdcUsernameField);
+        this.servletRequest = servletRequest;
+    }
+
     // -------------------------------------------------------------------------
     // IMPLEMENTATION: ContainerRequestFilter
     // -------------------------------------------------------------------------
 
     @Override
     public void filter(final ContainerRequestContext ctx) throws IOException {
-        final Optional<Request> request =
-                Optional.ofNullable(
-                        HttpConnection.getCurrentConnection().getHttpChannel().getRequest());
-        if (!request.isPresent()) {
-            return;
-        }
+        // Pooled threads may still carry the username of the previous request they handled.
+        MDC.remove(mdcUsernameField);
 
         // Get the authorised user principal
         final Optional<Principal> userPrincipal =
@@ -83,19 +111,23 @@ public class AddUserAuthToRequestFilter<P extends Principal>
             return;
         }
 
-        final Optional<InternalUser> maybeInternalUser =
-                this.principalConverter.convertToInternalUser((P) userPrincipal.get());
+        final Optional<InternalUser> maybeInternalUser = toInternalUser(ctx, userPrincipal.get());
         if (!maybeInternalUser.isPresent()) {
             return;
         }
 
         // Extract the username and set as the user identity in the request
-        final InternalUser internalUser = maybeInternalUser.get();
-        // Using lambda to provide implementation of the Principal functional interface
-        final Principal principal = internalUser::getUsername;
-        final UserIdentity userId = new DefaultUserIdentity(null, principal, null);
-        request.get().setAuthentication(new UserAuthentication(null, userId));
-        MDC.put(mdcUsernameField, principal.getName());
+        final String username = maybeInternalUser.get().getUsername();
+        MDC.put(mdcUsernameField, username);
+
+        final Request request =
+                servletRequest == null ? null : Request.getBaseRequest(servletRequest);
+        if (request != null) {
+            // Using lambda to provide implementation of the Principal functional interface
+            final Principal principal = () -> username;
+            final UserIdentity userId = new DefaultUserIdentity(null, principal, null);
+            request.setAuthentication(new UserAuthentication(null, userId));
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -109,4 +141,28 @@ public class AddUserAuthToRequestFilter<P extends Principal>
             throws IOException {
         MDC.remove(mdcUsernameField);
     }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the user the principal represents. The user stored against the request by the
+     * authenticator is reused if present, otherwise the principal is converted.
+     *
+     * @param ctx The request.
+     * @param principal The authenticated principal.
+     * @return The user the principal represents, or {@link Optional#empty()} if it cannot be
+     *     converted.
+     */
+    @SuppressWarnings("unchecked")
+    private Optional<InternalUser> toInternalUser(
+            final ContainerRequestContext ctx, final Principal principal) {
+        final Object authenticatedUser =
+                ctx.getProperty(ExternalAuthenticator.INTERNAL_USER_PROPERTY);
+        if (authenticatedUser instanceof InternalUser) {
+            return Optional.of((InternalUser) authenticatedUser);
+        }
+        return principalConverter.convertToInternalUser((P) principal);
+    }
 }
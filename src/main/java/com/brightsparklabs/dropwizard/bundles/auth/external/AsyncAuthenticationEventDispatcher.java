@@ -0,0 +1,384 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.lifecycle.Managed;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AuthenticationEventListener} which queues events and delivers them to its delegates in
+ * batches on a background worker thread, so slow listeners do not add latency to requests.
+ *
+ * <p>The queue is bounded. The {@link OverflowPolicy} determines what happens to events which occur
+ * while it is full. Queued events are delivered before the worker stops, including those queued by
+ * callers racing with {@link #stop()}. Events which occur while the worker is not running
+ * (including after it died due to a listener throwing an {@link Error}) are delivered on the
+ * calling thread.
+ *
+ * @author brightSPARK Labs
+ */
+public class AsyncAuthenticationEventDispatcher implements AuthenticationEventListener, Managed {
+    // -------------------------------------------------------------------------
+    // CONSTANTS
+    // -------------------------------------------------------------------------
+
+    /** Maximum time the worker waits for new events before checking if it should stop. */
+    private static final long IDLE_WAIT_MILLIS = 100;
+
+    /**
+     * Maximum time a caller waits for room in the queue before checking if the worker is still
+     * running.
+     */
+    private static final long BLOCKED_WAIT_MILLIS = 100;
+
+    /** Time {@link #stop()} waits between checks for callers which are still queueing. */
+    private static final long STOP_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    // -------------------------------------------------------------------------
+    // CLASS VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Class logger */
+    private static final Logger logger =
+            LoggerFactory.getLogger(AsyncAuthenticationEventDispatcher.class);
+
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Listeners to deliver events to. */
+    private final Iterable<AuthenticationEventListener> listeners;
+
+    /** Events waiting to be delivered. Bounded to the configured capacity. */
+    private final BlockingQueue<AuthenticationEvent> queue;
+
+    /** Maximum number of events to deliver in a single batch. */
+    private final int batchSize;
+
+    /** What to do with events which occur while the queue is full. */
+    private final OverflowPolicy overflowPolicy;
+
+    /** Under {@link OverflowPolicy#SAMPLE}, one in this many overflowing events are retained. */
+    private final int sampleEvery;
+
+    /** Maximum time to spend delivering queued events when stopping. */
+    private final Duration shutdownTimeout;
+
+    /**
+     * Number of callers which may have seen the worker running and have not finished queueing
+     * their event. Stopping waits for these before the final drain of the queue.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** Number of events which have occurred while the queue was full. */
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    /** Rate of events which were discarded because the queue was full. */
+    private final Meter dropped;
+
+    /** Thread delivering events, or {@code null} if not running. */
+    private volatile Thread worker;
+
+    /**
+     * Whether the worker is accepting events. Cleared when stopping, or if the worker dies
+     * unexpectedly.
+     */
+    private volatile boolean running;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new dispatcher. It must be started before events are delivered asynchronously.
+     *
+     * @param listeners Listeners to deliver events to.
+     * @param capacity Maximum number of events to queue.
+     * @param batchSize Maximum number of events to deliver in a single batch.
+     * @param overflowPolicy What to do with events which occur while the queue is full.
+     * @param sampleEvery Under {@link OverflowPolicy#SAMPLE}, one in this many overflowing events
+     *     are retained.
+     * @param shutdownTimeout Maximum time to spend delivering queued events when stopping.
+     * @param metricRegistry Registry to record the queue depth and dropped events in.
+     * @param metricsName Name to record the metrics against, i.e. that of the filter whose events
+     *     are dispatched. See {@link AuthenticationMetrics#name(String, String...)}.
+     * @throws IllegalArgumentException If the metrics are already registered (e.g. by another
+     *     dispatcher with the same metrics name).
+     */
+    AsyncAuthenticationEventDispatcher(
+            final Iterable<AuthenticationEventListener> listeners,
+            final int capacity,
+            final int batchSize,
+            final OverflowPolicy overflowPolicy,
+            final int sampleEvery,
+            final Duration shutdownTimeout,
+            final MetricRegistry metricRegistry,
+            final String metricsName) {
+        this.listeners = listeners;
+        this.queue = new LinkedBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleEvery = sampleEvery;
+        this.shutdownTimeout = shutdownTimeout;
+
+        metricRegistry.register(
+                AuthenticationMetrics.name(metricsName, "events", "queue-depth"),
+                (Gauge<Integer>) queue::size);
+        dropped =
+                metricRegistry.meter(AuthenticationMetrics.name(metricsName, "events", "dropped"));
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: AuthenticationEventListener
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void onAuthenticationSuccess(final InternalUser authenticatedUser) {
+        dispatch(AuthenticationEvent.success(authenticatedUser));
+    }
+
+    @Override
+    public void onAuthenticationDenied(final AuthenticationDeniedException authDeniedException) {
+        dispatch(AuthenticationEvent.denied(authDeniedException));
+    }
+
+    @Override
+    public void onAuthenticationError(final AuthenticationException authException) {
+        dispatch(AuthenticationEvent.error(authException));
+    }
+
+    @Override
+    public void onAuthenticationEvents(final List<AuthenticationEvent> events) {
+        events.forEach(this::dispatch);
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Managed
+    // -------------------------------------------------------------------------
+
+    @Override
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        running = true;
+        worker =
+                new ThreadFactoryBuilder()
+                        .setNameFormat("authentication-event-dispatcher-%d")
+                        .setDaemon(true)
+                        .build()
+                        .newThread(this::deliverUntilStopped);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException {
+        final Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        final long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        // Callers which saw the worker running may still be queueing. New callers deliver
+        // synchronously, so once these finish nothing more is queued.
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(this, STOP_PARK_NANOS);
+        }
+        thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        if (thread.isAlive() || inFlight.get() > 0) {
+            logger.warn(
+                    "Timed out delivering authentication events - [{}] events not delivered",
+                    queue.size());
+            thread.interrupt();
+        } else {
+            // Deliver anything queued after the worker's last poll, or left by a worker which
+            // died.
+            final List<AuthenticationEvent> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                deliver(remaining);
+            }
+        }
+        worker = null;
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of events waiting to be delivered.
+     *
+     * @return The number of events waiting to be delivered.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of events which were discarded because the queue was full.
+     *
+     * @return The number of events which were discarded because the queue was full.
+     */
+    public long getDroppedCount() {
+        return dropped.getCount();
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Queues an event for delivery, or delivers it on the calling thread if the worker is not
+     * running.
+     *
+     * @param event The event to queue.
+     */
+    private void dispatch(final AuthenticationEvent event) {
+        // Announce the attempt before checking whether the worker is running, so that stop()
+        // either sees this caller in flight or this caller sees the worker stopped.
+        inFlight.incrementAndGet();
+        try {
+            if (running) {
+                enqueue(event);
+                return;
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        deliver(ImmutableList.of(event));
+    }
+
+    /**
+     * Queues an event for delivery while the worker is running, applying the overflow policy if
+     * the queue is full.
+     *
+     * @param event The event to queue.
+     */
+    private void enqueue(final AuthenticationEvent event) {
+        if (queue.offer(event)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP:
+                dropped.mark();
+                return;
+            case BLOCK:
+                try {
+                    // Wait for the worker to make room, unless it stops (or dies) in the meantime.
+                    while (!queue.offer(event, BLOCKED_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (!running) {
+                            deliver(ImmutableList.of(event));
+                            return;
+                        }
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    deliver(ImmutableList.of(event));
+                }
+                return;
+            case SAMPLE:
+                // Retain one in every N overflowing events by displacing the oldest queued event.
+                dropped.mark();
+                if (overflowCount.incrementAndGet() % sampleEvery == 0
+                        && queue.poll() != null
+                        && !queue.offer(event)) {
+                    // Another caller took the freed place.
+                    dropped.mark();
+                }
+                return;
+        }
+    }
+
+    /**
+     * Delivers queued events in batches until stopped and the queue has been drained. Clears
+     * {@link #running} when it exits for any reason, so callers deliver synchronously rather than
+     * queueing (or blocking) for a worker which no longer exists.
+     */
+    private void deliverUntilStopped() {
+        final List<AuthenticationEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                final AuthenticationEvent event =
+                        queue.poll(IDLE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    continue;
+                }
+                batch.add(event);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(ImmutableList.copyOf(batch));
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (running) {
+                running = false;
+                logger.error(
+                        "Authentication event dispatcher stopped unexpectedly - delivering"
+                                + " events on the calling thread");
+            }
+        }
+    }
+
+    /**
+     * Delivers a batch of events to each listener. Exceptions thrown by a listener are logged so
+     * they do not prevent delivery to the remaining listeners.
+     *
+     * @param events The events to deliver.
+     */
+    private void deliver(final List<AuthenticationEvent> events) {
+        for (final AuthenticationEventListener listener : listeners) {
+            try {
+                listener.onAuthenticationEvents(events);
+            } catch (RuntimeException ex) {
+                logger.error(
+                        "Authentication event listener [{}] failed to process [{}] events",
+                        listener.getClass().getName(),
+                        events.size(),
+                        ex);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** What to do with events which occur while the queue is full. */
+    public enum OverflowPolicy {
+        /** Discard the event. */
+        DROP,
+
+        /** Block the request thread until there is room in the queue. */
+        BLOCK,
+
+        /**
+         * Retain a sample of the events by having one in every {@code sampleEvery} events displace
+         * the oldest queued event. The rest are discarded.
+         */
+        SAMPLE
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configuration for an {@link AsyncAuthenticationEventDispatcher}.
+ *
+ * <p>This will be created by Dropwizard + Jackson.
+ *
+ * @author brightSPARK Labs
+ */
+public class AsyncAuthenticationEventDispatcherFactory {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Maximum number of events to queue. Default: 10,000. */
+    @Min(1) @JsonProperty private int queueCapacity = 10_000;
+
+    /** Maximum number of events to deliver to listeners in a single batch. Default: 100. */
+    @Min(1) @JsonProperty private int batchSize = 100;
+
+    /** What to do with events which occur while the queue is full. Default: {@code DROP}. */
+    @NotNull @JsonProperty
+    private AsyncAuthenticationEventDispatcher.OverflowPolicy overflowPolicy =
+            AsyncAuthenticationEventDispatcher.OverflowPolicy.DROP;
+
+    /**
+     * Under the {@code SAMPLE} overflow policy, one in this many events which occur while the
+     * queue is full are retained. Default: 10.
+     */
+    @Min(1) @JsonProperty private int sampleEvery = 10;
+
+    /** Maximum time to spend delivering queued events on shutdown. Default: 10 seconds. */
+    @NotNull @JsonProperty private Duration shutdownTimeout = Duration.seconds(10);
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Builds a dispatcher using this configuration. The dispatcher must be started before events
+     * are delivered asynchronously.
+     *
+     * @param listeners Listeners to deliver events to.
+     * @param metricRegistry Registry to record the queue depth and dropped events in.
+     * @param metricsName Name to record the metrics against, i.e. that of the filter whose events
+     *     are dispatched.
+     * @return A dispatcher using this configuration.
+     */
+    public AsyncAuthenticationEventDispatcher build(
+            final Iterable<AuthenticationEventListener> listeners,
+            final MetricRegistry metricRegistry,
+            final String metricsName) {
+        return new AsyncAuthenticationEventDispatcher(
+                listeners,
+                queueCapacity,
+                batchSize,
+                overflowPolicy,
+                sampleEvery,
+                shutdownTimeout.toJavaDuration(),
+                metricRegistry,
+                metricsName);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import io.dropwizard.auth.AuthenticationException;
+import java.time.Instant;
+import java.util.Optional;
+import org.immutables.value.Value;
+
+/**
+ * The outcome of an authentication attempt, as delivered to {@link
+ * AuthenticationEventListener#onAuthenticationEvents(java.util.List)}.
+ *
+ * @author brightSPARK Labs
+ */
+@Value.Immutable
+public abstract class AuthenticationEvent {
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns an event for a successful authentication.
+     *
+     * @param authenticatedUser The successfully-authenticated user.
+     * @return An event for a successful authentication.
+     */
+    public static AuthenticationEvent success(final InternalUser authenticatedUser) {
+        return ImmutableAuthenticationEvent.builder()
+                .type(Type.SUCCESS)
+                .user(authenticatedUser)
+                .build();
+    }
+
+    /**
+     * Returns an event for an authentication which was denied.
+     *
+     * @param authDeniedException The exception that was thrown on access denied.
+     * @return An event for an authentication which was denied.
+     */
+    public static AuthenticationEvent denied(
+            final AuthenticationDeniedException authDeniedException) {
+        return ImmutableAuthenticationEvent.builder()
+                .type(Type.DENIED)
+                .deniedException(authDeniedException)
+                .build();
+    }
+
+    /**
+     * Returns an event for an authentication which could not be performed due to an error.
+     *
+     * @param authException The exception that was thrown on access request failure.
+     * @return An event for an authentication which could not be performed due to an error.
+     */
+    public static AuthenticationEvent error(final AuthenticationException authException) {
+        return ImmutableAuthenticationEvent.builder()
+                .type(Type.ERROR)
+                .errorException(authException)
+                .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the outcome of the authentication attempt.
+     *
+     * @return The outcome of the authentication attempt.
+     */
+    public abstract Type getType();
+
+    /**
+     * Returns when the authentication attempt occurred.
+     *
+     * @return When the authentication attempt occurred.
+     */
+    @Value.Default
+    public Instant getTimestamp() {
+        return Instant.now();
+    }
+
+    /**
+     * Returns the successfully-authenticated user, if the type is {@link Type#SUCCESS}.
+     *
+     * @return The successfully-authenticated user, if the type is {@link Type#SUCCESS}.
+     */
+    public abstract Optional<InternalUser> getUser();
+
+    /**
+     * Returns the exception that was thrown on access denied, if the type is {@link Type#DENIED}.
+     *
+     * @return The exception that was thrown on access denied, if the type is {@link Type#DENIED}.
+     */
+    public abstract Optional<AuthenticationDeniedException> getDeniedException();
+
+    /**
+     * Returns the exception that was thrown on access request failure, if the type is {@link
+     * Type#ERROR}.
+     *
+     * @return The exception that was thrown on access request failure, if the type is {@link
+     *     Type#ERROR}.
+     */
+    public abstract Optional<AuthenticationException> getErrorException();
+
+    /**
+     * Calls the single-event method of the listener corresponding to the type of this event.
+     *
+     * @param listener The listener to notify.
+     */
+    public void dispatchTo(final AuthenticationEventListener listener) {
+        switch (getType()) {
+            case SUCCESS:
+                listener.onAuthenticationSuccess(getUser().get());
+                break;
+            case DENIED:
+                listener.onAuthenticationDenied(getDeniedException().get());
+                break;
+            case ERROR:
+                listener.onAuthenticationError(getErrorException().get());
+                break;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** Outcome of an authentication attempt. */
+    public enum Type {
+        /** The user was authenticated. */
+        SUCCESS,
+
+        /** The credentials were invalid. */
+        DENIED,
+
+        /** The credentials could not be checked due to an error. */
+        ERROR
+    }
+}
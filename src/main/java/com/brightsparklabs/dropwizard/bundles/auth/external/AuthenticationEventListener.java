@@ -8,6 +8,7 @@
 package com.brightsparklabs.dropwizard.bundles.auth.external;
 
 import io.dropwizard.auth.AuthenticationException;
+import java.util.List;
 
 /**
  * Interface for listeners to authentication events.
@@ -42,4 +43,18 @@ public interface AuthenticationEventListener {
     default void onAuthenticationError(AuthenticationException authException) {
         // Do nothing by default
     }
+
+    /**
+     * Listener function called with a batch of events when events are dispatched asynchronously
+     * (see {@link AsyncAuthenticationEventDispatcher}). Events are supplied in the order they
+     * occurred.
+     *
+     * <p>Defaults to calling the single-event function corresponding to each event. Override this
+     * to process the batch in one go (e.g. a single database insert).
+     *
+     * @param events the events which have occurred since the previous batch
+     */
+    default void onAuthenticationEvents(List<AuthenticationEvent> events) {
+        events.forEach(event -> event.dispatchTo(this));
+    }
 }
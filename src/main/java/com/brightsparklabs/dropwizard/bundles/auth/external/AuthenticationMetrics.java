@@ -0,0 +1,144 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.NoopMetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Metrics recorded by an {@link ExternalAuthenticator}. Metrics are named after the filter the
+ * authenticator belongs to (see {@link ExternallyAuthenticatedAuthFilterFactory#getMetricsName()}),
+ * so each filter can be monitored separately.
+ *
+ * @author brightSPARK Labs
+ */
+public class AuthenticationMetrics {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Time taken to verify the signature of credentials (including parsing them). */
+    private final Timer signatureVerification;
+
+    /** Time taken to extract the user's details from the credentials. */
+    private final Timer claimExtraction;
+
+    /** Time taken to convert the authenticated user into a principal. */
+    private final Timer principalConversion;
+
+    /** Rate of successful authentications. */
+    private final Meter success;
+
+    /** Rate of authentications denied due to invalid credentials. */
+    private final Meter denied;
+
+    /** Rate of authentications which could not be performed due to an error. */
+    private final Meter error;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates the metrics for the specified filter type in the supplied registry.
+     *
+     * @param metricRegistry Registry to create the metrics in.
+     * @param filterType Type of filter the authenticator belongs to (e.g. {@code jwt}).
+     */
+    public AuthenticationMetrics(final MetricRegistry metricRegistry, final String filterType) {
+        signatureVerification = metricRegistry.timer(name(filterType, "signature-verification"));
+        claimExtraction = metricRegistry.timer(name(filterType, "claim-extraction"));
+        principalConversion = metricRegistry.timer(name(filterType, "principal-conversion"));
+        success = metricRegistry.meter(name(filterType, "success"));
+        denied = metricRegistry.meter(name(filterType, "denied"));
+        error = metricRegistry.meter(name(filterType, "error"));
+    }
+
+    /**
+     * Returns metrics which are not recorded anywhere.
+     *
+     * @return Metrics which are not recorded anywhere.
+     */
+    public static AuthenticationMetrics noop() {
+        return new AuthenticationMetrics(new NoopMetricRegistry(), "noop");
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the name of a metric for the specified filter type. Names are prefixed with the class
+     * name of {@link ExternallyAuthenticatedAuthBundle} and the filter type. E.g. {@code
+     * ...ExternallyAuthenticatedAuthBundle.jwt.success}.
+     *
+     * @param filterType Type of filter the metric belongs to (e.g. {@code jwt}).
+     * @param names Remaining components of the name.
+     * @return The name of the metric.
+     */
+    public static String name(final String filterType, final String... names) {
+        return MetricRegistry.name(
+                MetricRegistry.name(ExternallyAuthenticatedAuthBundle.class, filterType), names);
+    }
+
+    /**
+     * Returns the time taken to verify the signature of credentials (including parsing them).
+     *
+     * @return The time taken to verify the signature of credentials.
+     */
+    public Timer getSignatureVerification() {
+        return signatureVerification;
+    }
+
+    /**
+     * Returns the time taken to extract the user's details from the credentials.
+     *
+     * @return The time taken to extract the user's details from the credentials.
+     */
+    public Timer getClaimExtraction() {
+        return claimExtraction;
+    }
+
+    /**
+     * Returns the time taken to convert the authenticated user into a principal.
+     *
+     * @return The time taken to convert the authenticated user into a principal.
+     */
+    public Timer getPrincipalConversion() {
+        return principalConversion;
+    }
+
+    /**
+     * Returns the rate of successful authentications.
+     *
+     * @return The rate of successful authentications.
+     */
+    public Meter getSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the rate of authentications denied due to invalid credentials.
+     *
+     * @return The rate of authentications denied due to invalid credentials.
+     */
+    public Meter getDenied() {
+        return denied;
+    }
+
+    /**
+     * Returns the rate of authentications which could not be performed due to an error.
+     *
+     * @return The rate of authentications which could not be performed due to an error.
+     */
+    public Meter getError() {
+        return error;
+    }
+}
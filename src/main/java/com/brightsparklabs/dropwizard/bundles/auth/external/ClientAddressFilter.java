@@ -0,0 +1,69 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import jakarta.annotation.Priority;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.Context;
+import java.io.IOException;
+
+/**
+ * A {@link ContainerRequestFilter} which records the address of the client as a property of each
+ * request, so filters which Jersey does not inject (e.g. the delegates of a chained filter) can
+ * read it via {@link #getClientAddress(ContainerRequestContext)}.
+ *
+ * @author brightSPARK Labs
+ */
+@PreMatching
+@Priority(Priorities.AUTHENTICATION)
+final class ClientAddressFilter implements ContainerRequestFilter {
+    // -------------------------------------------------------------------------
+    // CONSTANTS
+    // -------------------------------------------------------------------------
+
+    /** Name of the request property the client address is recorded against. */
+    static final String CLIENT_ADDRESS_PROPERTY =
+            "com.brightsparklabs.dropwizard.bundles.auth.external.clientAddress";
+
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** The current request. Injected by Jersey. */
+    @Context private HttpServletRequest servletRequest;
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: ContainerRequestFilter
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) throws IOException {
+        if (servletRequest != null) {
+            requestContext.setProperty(CLIENT_ADDRESS_PROPERTY, servletRequest.getRemoteAddr());
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the address of the client which sent the request.
+     *
+     * @param requestContext The request.
+     * @return The address of the client, or {@code null} if it was not recorded.
+     */
+    static String getClientAddress(final ContainerRequestContext requestContext) {
+        final Object clientAddress = requestContext.getProperty(CLIENT_ADDRESS_PROPERTY);
+        return clientAddress instanceof String ? (String) clientAddress : null;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+
+/**
+ * Cheaply determines whether a request carries the credentials an {@link
+ * io.dropwizard.auth.AuthFilter} authenticates, without authenticating them. Used to route requests
+ * straight to the matching filter in a chain.
+ *
+ * @author brightSPARK Labs
+ */
+@FunctionalInterface
+public interface CredentialMatcher {
+    /**
+     * Returns whether the request carries the credentials the filter authenticates.
+     *
+     * @param requestContext The request.
+     * @return Whether the request carries the credentials the filter authenticates.
+     */
+    Presence match(ContainerRequestContext requestContext);
+
+    /**
+     * Returns a matcher which cannot determine whether credentials are present. Requests are always
+     * tried against filters with such a matcher.
+     *
+     * @return A matcher which cannot determine whether credentials are present.
+     */
+    static CredentialMatcher unknown() {
+        return requestContext -> Presence.UNKNOWN;
+    }
+
+    /** Whether a request carries the credentials a filter authenticates. */
+    enum Presence {
+        /** The request carries the credentials. They may or may not be valid. */
+        PRESENT,
+
+        /** The request does not carry the credentials, so the filter will not authenticate it. */
+        ABSENT,
+
+        /** It cannot be determined whether the request carries the credentials. */
+        UNKNOWN
+    }
+}
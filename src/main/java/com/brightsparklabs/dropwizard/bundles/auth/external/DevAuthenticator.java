@@ -53,7 +53,25 @@ public class DevAuthenticator<P extends Principal> extends ExternalAuthenticator
             final PrincipalConverter<P> principalConverter,
             final InternalUser user,
             final Iterable<AuthenticationEventListener> listeners) {
-        super(principalConverter, listeners);
+        this(principalConverter, user, listeners, AuthenticationMetrics.noop());
+    }
+
+    /**
+     * Creates a new authenticator which always returns the User from configuration, and records
+     * outcomes against the supplied metrics. For use during development only
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param user user to return
+     * @param listeners The authentication event listeners
+     * @param metrics Metrics to record authentication timings and outcomes against.
+     */
+    DevAuthenticator(
+            final PrincipalConverter<P> principalConverter,
+            final InternalUser user,
+            final Iterable<AuthenticationEventListener> listeners,
+            final AuthenticationMetrics metrics) {
+        super(principalConverter, listeners, metrics);
         this.user = user;
     }
 
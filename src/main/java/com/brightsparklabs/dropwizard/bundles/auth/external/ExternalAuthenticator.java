@@ -7,8 +7,10 @@
 
 package com.brightsparklabs.dropwizard.bundles.auth.external;
 
+import com.codahale.metrics.Timer;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.Authenticator;
+import jakarta.ws.rs.container.ContainerRequestContext;
 import java.security.Principal;
 import java.util.Optional;
 
@@ -24,10 +26,31 @@ public abstract class ExternalAuthenticator<C, P extends Principal> implements A
     // CONSTANTS
     // -------------------------------------------------------------------------
 
+    /**
+     * Name of the request property the {@link InternalUser} produced by the authenticator is
+     * stored against, so later filters can use it without converting the principal back.
+     */
+    public static final String INTERNAL_USER_PROPERTY =
+            "com.brightsparklabs.dropwizard.bundles.auth.external.internalUser";
+
+    /**
+     * Name of the request property set when the authenticator denies credentials which may be
+     * accepted if they are presented again later (e.g. a token which is not valid yet), so they are
+     * not remembered as invalid.
+     */
+    public static final String RETRYABLE_DENIAL_PROPERTY =
+            "com.brightsparklabs.dropwizard.bundles.auth.external.retryableDenial";
+
     // -------------------------------------------------------------------------
     // CLASS VARIABLES
     // -------------------------------------------------------------------------
 
+    /**
+     * Request being authenticated on the current thread. Bound via {@link
+     * #bindRequest(ContainerRequestContext)}, as {@link Authenticator} is not given the request.
+     */
+    private static final ThreadLocal<ContainerRequestContext> boundRequest = new ThreadLocal<>();
+
     // -------------------------------------------------------------------------
     // INSTANCE VARIABLES
     // -------------------------------------------------------------------------
@@ -37,6 +60,9 @@ public abstract class ExternalAuthenticator<C, P extends Principal> implements A
 
     private final Iterable<AuthenticationEventListener> authenticationEventListeners;
 
+    /** Metrics to record authentication timings and outcomes against. */
+    private final AuthenticationMetrics metrics;
+
     // -------------------------------------------------------------------------
     // CONSTRUCTION
     // -------------------------------------------------------------------------
@@ -52,8 +78,25 @@ public abstract class ExternalAuthenticator<C, P extends Principal> implements A
     public ExternalAuthenticator(
             final PrincipalConverter<P> principalConverter,
             final Iterable<AuthenticationEventListener> listeners) {
+        this(principalConverter, listeners, AuthenticationMetrics.noop());
+    }
+
+    /**
+     * Creates a new authenticator which records authentication timings and outcomes against the
+     * supplied metrics.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param listeners The authentication event listeners
+     * @param metrics Metrics to record authentication timings and outcomes against.
+     */
+    public ExternalAuthenticator(
+            final PrincipalConverter<P> principalConverter,
+            final Iterable<AuthenticationEventListener> listeners,
+            final AuthenticationMetrics metrics) {
         this.principalConverter = principalConverter;
         this.authenticationEventListeners = listeners;
+        this.metrics = metrics;
     }
 
     // -------------------------------------------------------------------------
@@ -64,17 +107,27 @@ public abstract class ExternalAuthenticator<C, P extends Principal> implements A
     public Optional<P> authenticate(final C credentials) throws AuthenticationException {
         try {
             final InternalUser authenticatedInternalUser = doAuthenticate(credentials);
+            metrics.getSuccess().mark();
+            final ContainerRequestContext requestContext = boundRequest.get();
+            if (requestContext != null) {
+                requestContext.setProperty(INTERNAL_USER_PROPERTY, authenticatedInternalUser);
+            }
             authenticationEventListeners.forEach(
                     listener -> listener.onAuthenticationSuccess(authenticatedInternalUser));
-            return Optional.of(principalConverter.convertToPrincipal(authenticatedInternalUser));
+            try (Timer.Context ignored = metrics.getPrincipalConversion().time()) {
+                return Optional.of(
+                        principalConverter.convertToPrincipal(authenticatedInternalUser));
+            }
         } catch (AuthenticationDeniedException authDeniedException) {
             // Call listener functions and return an empty optional to indicate authentication was
             // denied
+            metrics.getDenied().mark();
             authenticationEventListeners.forEach(
                     listener -> listener.onAuthenticationDenied(authDeniedException));
             return Optional.empty();
         } catch (AuthenticationException authException) {
             // Call listener functions and propagate exception
+            metrics.getError().mark();
             authenticationEventListeners.forEach(
                     listener -> listener.onAuthenticationError(authException));
             throw authException;
@@ -98,6 +151,59 @@ public abstract class ExternalAuthenticator<C, P extends Principal> implements A
     public abstract InternalUser doAuthenticate(final C credentials)
             throws AuthenticationException, AuthenticationDeniedException;
 
+    /**
+     * Returns the metrics to record authentication timings and outcomes against.
+     *
+     * @return The metrics to record authentication timings and outcomes against.
+     */
+    protected AuthenticationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Marks the request being authenticated on the current thread as denied for a reason which may
+     * not persist, by setting its {@link #RETRYABLE_DENIAL_PROPERTY}. Call before throwing an
+     * {@link AuthenticationDeniedException}.
+     */
+    protected static void markDenialRetryable() {
+        final ContainerRequestContext requestContext = boundRequest.get();
+        if (requestContext != null) {
+            requestContext.setProperty(RETRYABLE_DENIAL_PROPERTY, Boolean.TRUE);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Binds the request to the current thread while it is authenticated, so that the user produced
+     * by any authenticator is stored against {@link #INTERNAL_USER_PROPERTY} of the request.
+     *
+     * @param requestContext The request being authenticated.
+     * @return The request previously bound to the thread, to pass to {@link
+     *     #restoreRequest(ContainerRequestContext)} once the request is authenticated.
+     */
+    static ContainerRequestContext bindRequest(final ContainerRequestContext requestContext) {
+        final ContainerRequestContext previous = boundRequest.get();
+        boundRequest.set(requestContext);
+        return previous;
+    }
+
+    /**
+     * Restores the request which was bound to the current thread before {@link
+     * #bindRequest(ContainerRequestContext)}.
+     *
+     * @param previous The request returned by {@link #bindRequest(ContainerRequestContext)}.
+     */
+    static void restoreRequest(final ContainerRequestContext previous) {
+        if (previous == null) {
+            boundRequest.remove();
+        } else {
+            boundRequest.set(previous);
+        }
+    }
+
     // -------------------------------------------------------------------------
     // PRIVATE METHODS
     // -------------------------------------------------------------------------
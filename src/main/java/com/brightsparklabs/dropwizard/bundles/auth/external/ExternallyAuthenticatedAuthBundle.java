@@ -19,13 +19,15 @@ import io.dropwizard.auth.PermitAllAuthorizer;
 import io.dropwizard.core.ConfiguredBundle;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
+import jakarta.servlet.DispatcherType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import java.security.Principal;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 
 /**
@@ -166,7 +168,9 @@ public class ExternallyAuthenticatedAuthBundle<
         this.principalConverter = requireNonNull(converter);
         this.authorizer = requireNonNull(authorizer);
         this.setupRolesAllowedDynamicFeature = setupRolesAllowedDynamicFeature;
-        this.authenticationEventListeners = new ArrayList<>(Arrays.asList(listeners));
+        // Listeners may be added/removed while events are being delivered (possibly on another
+        // thread), so use a thread-safe list.
+        this.authenticationEventListeners = new CopyOnWriteArrayList<>(Arrays.asList(listeners));
     }
 
     // -------------------------------------------------------------------------
@@ -185,20 +189,45 @@ public class ExternallyAuthenticatedAuthBundle<
         environment.jersey().register(new AuthenticationExceptionMapper());
         environment.jersey().register(new AuthenticationDeniedExceptionMapper());
 
+        // Remove the username from the MDC around each request, including requests which are
+        // suspended and so never have their response filtered on the thread.
+        final String mdcUsernameField = authFilterFactory.getMdcUsernameField();
+        environment
+                .servlets()
+                .addFilter("mdc-reset", new MdcResetFilter(mdcUsernameField))
+                .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+
+        // Record the client address for flood protection, wherever it sits within a chain.
+        environment.jersey().register(new ClientAddressFilter());
+
         // Add the user authentication to the request
         environment
                 .jersey()
-                .register(
-                        new AddUserAuthToRequestFilter<>(
-                                principalConverter,
-                                configuration
-                                        .getExternallyAuthenticatedFilterFactory()
-                                        .getMdcUsernameField()));
+                .register(new AddUserAuthToRequestFilter<>(principalConverter, mdcUsernameField));
+
+        // Deliver authentication events on a background worker if configured.
+        final Iterable<AuthenticationEventListener> listeners =
+                authFilterFactory
+                        .getAsyncEventDispatch()
+                        .<Iterable<AuthenticationEventListener>>map(
+                                f -> {
+                                    final AsyncAuthenticationEventDispatcher dispatcher =
+                                            f.build(
+                                                    authenticationEventListeners,
+                                                    environment.metrics(),
+                                                    authFilterFactory.getMetricsName());
+                                    environment.lifecycle().manage(dispatcher);
+                                    return ImmutableList.of(dispatcher);
+                                })
+                        .orElse(authenticationEventListeners);
 
         final AuthFilter<?, P> authFilter =
-                authFilterFactory.build(
-                        principalConverter, authorizer, authenticationEventListeners);
-        environment.jersey().register(new AuthDynamicFeature(authFilter));
+                authFilterFactory.build(principalConverter, authorizer, listeners, environment);
+        // Bind each request while it is authenticated, so the user produced by the authenticator
+        // is stored against the request.
+        environment
+                .jersey()
+                .register(new AuthDynamicFeature(new RequestBindingAuthFilter(authFilter)));
 
         // Support using @Auth to inject a custom Principal type into resources.
         environment.jersey().register(new AuthValueFactoryProvider.Binder<>(principalClazz));
@@ -206,6 +235,13 @@ public class ExternallyAuthenticatedAuthBundle<
         // Allow dynamic authorization.
         if (setupRolesAllowedDynamicFeature) {
             environment.jersey().register(RolesAllowedDynamicFeature.class);
+            if (authorizer instanceof RoleBitSetAuthorizer) {
+                // Intern the roles which will be checked so they can be tested via bitsets.
+                final RoleRegistry roleRegistry =
+                        ((RoleBitSetAuthorizer) authorizer).getRoleRegistry();
+                roleRegistry.registerAll(authFilterFactory.getKnownRoles());
+                environment.jersey().register(roleRegistry.rolesAllowedScanner());
+            }
         }
     }
 
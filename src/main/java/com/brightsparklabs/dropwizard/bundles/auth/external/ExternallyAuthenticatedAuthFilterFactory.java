@@ -7,17 +7,31 @@
 
 package com.brightsparklabs.dropwizard.bundles.auth.external;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.NoopMetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import io.dropwizard.auth.AuthFilter;
 import io.dropwizard.auth.Authorizer;
-import io.dropwizard.auth.chained.ChainedAuthFilter;
 import io.dropwizard.auth.oauth.OAuthCredentialAuthFilter;
+import io.dropwizard.core.setup.Environment;
 import io.dropwizard.jackson.Discoverable;
+import io.jsonwebtoken.JwtParser;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MultivaluedMap;
+import java.io.IOException;
 import java.security.Principal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import org.hibernate.validator.constraints.NotEmpty;
 
 /**
@@ -39,6 +53,18 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
      */
     public static final String DEFAULT_MDC_USERNAME_FIELD = "req.username";
 
+    /**
+     * Scheme of the challenge ({@code WWW-Authenticate}) filters reject requests with unless they
+     * override it. Matches the default of Dropwizard's {@code AuthFilterBuilder}.
+     */
+    static final String DEFAULT_CHALLENGE_PREFIX = "Basic";
+
+    /**
+     * Realm of the challenge ({@code WWW-Authenticate}) filters reject requests with. Matches the
+     * default of Dropwizard's {@code AuthFilterBuilder}.
+     */
+    static final String DEFAULT_REALM = "realm";
+
     // -------------------------------------------------------------------------
     // INSTANCE VARIABLES
     // -------------------------------------------------------------------------
@@ -49,6 +75,27 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
      */
     @JsonProperty private String mdcUsernameField = DEFAULT_MDC_USERNAME_FIELD;
 
+    /**
+     * Name to record the metrics of the filter against. Must be unique within a {@code chained}
+     * filter. Default: the filter type (e.g. {@code jwt}).
+     */
+    @JsonProperty private String metricsName;
+
+    /**
+     * Configuration for delivering authentication events to listeners asynchronously. Events are
+     * delivered synchronously on the request thread if omitted. Only applies to the top-level
+     * filter, so cannot be set on the delegates of a {@code chained} filter.
+     */
+    @Valid @JsonProperty private AsyncAuthenticationEventDispatcherFactory asyncEventDispatch;
+
+    /**
+     * Roles to register with the {@link RoleRegistry} of a {@link RoleBitSetAuthorizer}, in
+     * addition to those named in {@code RolesAllowed} annotations. E.g. roles checked
+     * programmatically via {@code SecurityContext#isUserInRole(String)}. Only applies to the
+     * top-level filter, so cannot be set on the delegates of a {@code chained} filter.
+     */
+    @NotNull @JsonProperty private List<String> knownRoles = ImmutableList.of();
+
     // -------------------------------------------------------------------------
     // PUBLIC METHODS
     // -------------------------------------------------------------------------
@@ -64,6 +111,40 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
         return mdcUsernameField;
     }
 
+    /**
+     * Returns the name to record the metrics of the filter against. See {@link
+     * AuthenticationMetrics#name(String, String...)}.
+     *
+     * @return The configured name, or the filter type (e.g. {@code jwt}) if none is configured.
+     */
+    public String getMetricsName() {
+        if (!Strings.isNullOrEmpty(metricsName)) {
+            return metricsName;
+        }
+        final JsonTypeName typeName = getClass().getAnnotation(JsonTypeName.class);
+        return typeName == null ? getClass().getSimpleName() : typeName.value();
+    }
+
+    /**
+     * Returns the configuration for delivering authentication events to listeners asynchronously.
+     *
+     * @return The configuration for delivering authentication events to listeners asynchronously,
+     *     or {@link Optional#empty()} if events should be delivered synchronously.
+     */
+    Optional<AsyncAuthenticationEventDispatcherFactory> getAsyncEventDispatch() {
+        return Optional.ofNullable(asyncEventDispatch);
+    }
+
+    /**
+     * Returns the roles to register in addition to those named in {@code RolesAllowed} annotations.
+     *
+     * @return The roles to register in addition to those named in {@code RolesAllowed}
+     *     annotations.
+     */
+    List<String> getKnownRoles() {
+        return knownRoles;
+    }
+
     /**
      * Returns an {@link AuthFilter} which authenticates a user based on information passed to it by
      * an external authentication provider.
@@ -81,6 +162,69 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
             Authorizer<P> authorizer,
             Iterable<AuthenticationEventListener> listeners);
 
+    /**
+     * Returns an {@link AuthFilter} which authenticates a user based on information passed to it by
+     * an external authentication provider, registering any resources it requires (e.g. background
+     * tasks) with the supplied environment.
+     *
+     * <p>Defaults to {@link #build(PrincipalConverter, Authorizer, Iterable)}.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param authorizer The {@link Authorizer} to use.
+     * @param listeners The authentication event listeners
+     * @param environment The environment to register resources with.
+     * @param <P> The {@link Principal} the filter should return.
+     * @return An {@link AuthFilter} which authenticates a user based on information passed to it by
+     *     an external authentication provider.
+     */
+    public <P extends Principal> AuthFilter<?, P> build(
+            final PrincipalConverter<P> principalConverter,
+            final Authorizer<P> authorizer,
+            final Iterable<AuthenticationEventListener> listeners,
+            final Environment environment) {
+        return build(principalConverter, authorizer, listeners);
+    }
+
+    /**
+     * Returns a matcher which cheaply determines whether a request carries the credentials
+     * authenticated by the filters this factory builds. Used to route requests within a {@code
+     * chained} filter.
+     *
+     * <p>Defaults to {@link CredentialMatcher#unknown()}.
+     *
+     * @return A matcher which determines whether a request carries the credentials authenticated
+     *     by the filters this factory builds.
+     */
+    public CredentialMatcher buildCredentialMatcher() {
+        return CredentialMatcher.unknown();
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the names the metrics of every filter this factory builds are recorded against.
+     *
+     * @return The names the metrics of every filter this factory builds are recorded against.
+     */
+    List<String> getAllMetricsNames() {
+        return ImmutableList.of(getMetricsName());
+    }
+
+    /**
+     * Returns the scheme of the challenge ({@code WWW-Authenticate}) the filters this factory
+     * builds reject requests with.
+     *
+     * <p>Defaults to {@link #DEFAULT_CHALLENGE_PREFIX}.
+     *
+     * @return The scheme of the challenge the filters this factory builds reject requests with.
+     */
+    String getChallengePrefix() {
+        return DEFAULT_CHALLENGE_PREFIX;
+    }
+
     // -------------------------------------------------------------------------
     // INNER CLASSES
     // -------------------------------------------------------------------------
@@ -92,33 +236,193 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
     @JsonTypeName("jwt")
     public static class JwtAuthFilterFactory<P extends Principal>
             extends ExternallyAuthenticatedAuthFilterFactory {
+        // -------------------------------------------------------------------------
+        // CONSTANTS
+        // -------------------------------------------------------------------------
+
+        /** Prefix of the {@code Authorization} header value which carries the JWT. */
+        private static final String BEARER_PREFIX = "Bearer";
+
         // -------------------------------------------------------------------------
         // INSTANCE VARIABLES
         // -------------------------------------------------------------------------
 
-        /** Public signing key used to sign the JWT */
-        @NotEmpty @JsonProperty private String signingKey;
+        /** Public signing key used to sign the JWT. Either this or {@link #jwks} must be set. */
+        @JsonProperty private String signingKey;
+
+        /**
+         * JWKS containing the public keys used to sign the JWT. Either this or {@link #signingKey}
+         * must be set.
+         */
+        @Valid @JsonProperty private JwksKeyLocatorFactory jwks;
+
+        /** Configuration of the cache of verified tokens. Tokens are not cached if omitted. */
+        @Valid @JsonProperty private VerifiedTokenCacheFactory tokenCache;
+
+        /**
+         * How the claims of each token are decoded. {@code STREAMING} only deserializes the claims
+         * used to build the user, and defers reading groups and roles until they are requested.
+         */
+        @NotNull @JsonProperty
+        private JwtAuthenticator.ClaimDecoding claimDecoding = JwtAuthenticator.ClaimDecoding.FULL;
+
+        /**
+         * Configuration for protecting against floods of invalid tokens. No protection if omitted.
+         */
+        @Valid @JsonProperty private FloodProtectionFactory floodProtection;
 
         // -------------------------------------------------------------------------
         // IMPLEMENTATION: ExternallyAuthenticatedAuthFilterFactory
         // -------------------------------------------------------------------------
 
+        /**
+         * {@inheritDoc}
+         *
+         * <p>If using a JWKS, it is loaded immediately and refreshed on a daemon thread which is
+         * never stopped. Prefer {@link #build(PrincipalConverter, Authorizer, Iterable,
+         * Environment)} which ties the refresh to the application lifecycle.
+         */
         @Override
         public <E extends Principal> AuthFilter<?, E> build(
                 final PrincipalConverter<E> principalConverter,
                 final Authorizer<E> authorizer,
                 final Iterable<AuthenticationEventListener> listeners) {
-            if (signingKey == null) {
+            final Optional<JwksKeyLocator> keyLocator = buildKeyLocator();
+            if (keyLocator.isPresent()) {
+                try {
+                    keyLocator.get().start();
+                } catch (IOException ex) {
+                    throw new IllegalStateException(
+                            "Could not load JWKS from [" + jwks.getLocation() + "]", ex);
+                }
+            }
+            return buildAuthFilter(
+                    principalConverter,
+                    authorizer,
+                    listeners,
+                    keyLocator,
+                    new NoopMetricRegistry());
+        }
+
+        @Override
+        public <E extends Principal> AuthFilter<?, E> build(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final Environment environment) {
+            final Optional<JwksKeyLocator> keyLocator = buildKeyLocator();
+            // The JWKS is loaded (and refreshing started) when the application starts.
+            keyLocator.ifPresent(environment.lifecycle()::manage);
+            return buildAuthFilter(
+                    principalConverter, authorizer, listeners, keyLocator, environment.metrics());
+        }
+
+        @Override
+        public CredentialMatcher buildCredentialMatcher() {
+            return requestContext -> {
+                final String authorization =
+                        requestContext.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+                if (authorization != null
+                        && authorization.length() > BEARER_PREFIX.length()
+                        && authorization.regionMatches(
+                                true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())
+                        && authorization.charAt(BEARER_PREFIX.length()) == ' ') {
+                    return CredentialMatcher.Presence.PRESENT;
+                }
+                // The filter also accepts the JWT as a query parameter.
+                return requestContext
+                                .getUriInfo()
+                                .getQueryParameters()
+                                .containsKey(OAuthCredentialAuthFilter.OAUTH_ACCESS_TOKEN_PARAM)
+                        ? CredentialMatcher.Presence.PRESENT
+                        : CredentialMatcher.Presence.ABSENT;
+            };
+        }
+
+        // -------------------------------------------------------------------------
+        // PACKAGE METHODS
+        // -------------------------------------------------------------------------
+
+        @Override
+        String getChallengePrefix() {
+            return BEARER_PREFIX;
+        }
+
+        // -------------------------------------------------------------------------
+        // PRIVATE METHODS
+        // -------------------------------------------------------------------------
+
+        /**
+         * Returns the JWKS key locator to verify tokens with, validating that exactly one key
+         * source has been configured.
+         *
+         * @return The JWKS key locator, or {@link Optional#empty()} if using a single signing key.
+         */
+        private Optional<JwksKeyLocator> buildKeyLocator() {
+            if (signingKey == null && jwks == null) {
                 throw new IllegalArgumentException(
                         "signingKey has not been defined in authentication configuration");
             }
+            if (signingKey != null && jwks != null) {
+                throw new IllegalArgumentException(
+                        "Only one of signingKey or jwks can be defined in authentication"
+                                + " configuration");
+            }
+            return Optional.ofNullable(jwks).map(JwksKeyLocatorFactory::build);
+        }
 
-            return new OAuthCredentialAuthFilter.Builder<E>()
-                    .setAuthenticator(
-                            new JwtAuthenticator<>(principalConverter, signingKey, listeners))
-                    .setAuthorizer(authorizer)
-                    .setPrefix("Bearer")
-                    .buildAuthFilter();
+        /**
+         * Returns an {@link AuthFilter} which authenticates a user based on a JWT.
+         *
+         * @param principalConverter Converter between {@link InternalUser} and the {@link
+         *     Principal} used in the system.
+         * @param authorizer The {@link Authorizer} to use.
+         * @param listeners The authentication event listeners
+         * @param keyLocator The JWKS key locator to verify tokens with, or {@link
+         *     Optional#empty()} to use the single signing key.
+         * @param metricRegistry Registry to record metrics in.
+         * @param <E> The {@link Principal} the filter should return.
+         * @return An {@link AuthFilter} which authenticates a user based on a JWT.
+         */
+        private <E extends Principal> AuthFilter<?, E> buildAuthFilter(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final Optional<JwksKeyLocator> keyLocator,
+                final MetricRegistry metricRegistry) {
+            final JwtParser jwtParser =
+                    keyLocator
+                            .map(l -> JwtAuthenticator.createJwtParser(l, claimDecoding))
+                            .orElseGet(
+                                    () ->
+                                            JwtAuthenticator.createJwtParser(
+                                                    signingKey, claimDecoding));
+            final Optional<VerifiedTokenCache> verifiedTokenCache =
+                    Optional.ofNullable(tokenCache).map(VerifiedTokenCacheFactory::build);
+            final String tokenCacheMetricsName =
+                    AuthenticationMetrics.name(getMetricsName(), "token-cache");
+            verifiedTokenCache.ifPresent(
+                    c -> c.registerGauges(metricRegistry, tokenCacheMetricsName));
+            // Tokens verified with a key which has since been removed or replaced must be verified
+            // again.
+            verifiedTokenCache.ifPresent(
+                    c -> keyLocator.ifPresent(l -> l.addKeySetListener(c::invalidateAll)));
+            final AuthFilter<?, E> authFilter =
+                    new OAuthCredentialAuthFilter.Builder<E>()
+                            .setAuthenticator(
+                                    new JwtAuthenticator<>(
+                                            principalConverter,
+                                            jwtParser,
+                                            listeners,
+                                            verifiedTokenCache,
+                                            new AuthenticationMetrics(
+                                                    metricRegistry, getMetricsName())))
+                            .setAuthorizer(authorizer)
+                            .setPrefix(BEARER_PREFIX)
+                            .buildAuthFilter();
+            return floodProtection == null
+                    ? authFilter
+                    : floodProtection.build(authFilter, metricRegistry, getMetricsName());
         }
     }
 
@@ -138,9 +442,57 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
                 final PrincipalConverter<E> principalConverter,
                 final Authorizer<E> authorizer,
                 final Iterable<AuthenticationEventListener> listeners) {
+            return buildAuthFilter(
+                    principalConverter, authorizer, listeners, new NoopMetricRegistry());
+        }
+
+        @Override
+        public <E extends Principal> AuthFilter<?, E> build(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final Environment environment) {
+            return buildAuthFilter(
+                    principalConverter, authorizer, listeners, environment.metrics());
+        }
+
+        @Override
+        public CredentialMatcher buildCredentialMatcher() {
+            return requestContext -> {
+                final MultivaluedMap<String, String> headers = requestContext.getHeaders();
+                return Strings.isNullOrEmpty(
+                                headers.getFirst(HeaderFieldsAuthenticator.DEFAULT_FIELD_USERNAME))
+                        ? CredentialMatcher.Presence.ABSENT
+                        : CredentialMatcher.Presence.PRESENT;
+            };
+        }
+
+        // -------------------------------------------------------------------------
+        // PRIVATE METHODS
+        // -------------------------------------------------------------------------
+
+        /**
+         * Returns an {@link AuthFilter} which authenticates a user based on HTTP headers.
+         *
+         * @param principalConverter Converter between {@link InternalUser} and the {@link
+         *     Principal} used in the system.
+         * @param authorizer The {@link Authorizer} to use.
+         * @param listeners The authentication event listeners
+         * @param metricRegistry Registry to record metrics in.
+         * @param <E> The {@link Principal} the filter should return.
+         * @return An {@link AuthFilter} which authenticates a user based on HTTP headers.
+         */
+        private <E extends Principal> AuthFilter<?, E> buildAuthFilter(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final MetricRegistry metricRegistry) {
             return new HeaderFieldsAuthFilter.Builder<E>()
                     .setAuthenticator(
-                            new HeaderFieldsAuthenticator<>(principalConverter, listeners))
+                            new HeaderFieldsAuthenticator<>(
+                                    principalConverter,
+                                    listeners,
+                                    new AuthenticationMetrics(metricRegistry, getMetricsName())))
                     .setAuthorizer(authorizer)
                     .buildAuthFilter();
         }
@@ -149,6 +501,9 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
     /**
      * Factory for producing an {@link AuthFilter} which delegates to a chain of others. Wrapper
      * around https://www.dropwizard.io/en/stable/manual/auth.html#chained-factories
+     *
+     * <p>Requests can optionally be routed straight to the delegate whose credentials they carry.
+     * See {@link Dispatch}.
      */
     @JsonTypeName("chained")
     public static class ChainedAuthFilterFactory<P extends Principal>
@@ -162,25 +517,207 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
         @NotEmpty @JsonProperty
         private ImmutableList<ExternallyAuthenticatedAuthFilterFactory> delegates;
 
+        /** How requests are dispatched to the delegates. Default: {@code ORDERED}. */
+        @NotNull @JsonProperty private Dispatch dispatch = Dispatch.ORDERED;
+
+        /**
+         * Configuration for protecting against floods of invalid tokens. No protection if omitted.
+         */
+        @Valid @JsonProperty private FloodProtectionFactory floodProtection;
+
         // -------------------------------------------------------------------------
         // IMPLEMENTATION: ExternallyAuthenticatedAuthFilterFactory
         // -------------------------------------------------------------------------
 
-        @SuppressWarnings("unchecked")
         @Override
         public <E extends Principal> AuthFilter<?, E> build(
                 final PrincipalConverter<E> principalConverter,
                 final Authorizer<E> authorizer,
                 final Iterable<AuthenticationEventListener> listeners) {
-            final ImmutableList<AuthFilter> authFilters =
+            checkDelegateSettings();
+            checkMetricsNamesUnique();
+            final ImmutableList<AuthFilter<?, E>> authFilters =
+                    delegates.stream()
+                            .<AuthFilter<?, E>>map(
+                                    d -> d.build(principalConverter, authorizer, listeners))
+                            .collect(ImmutableList.toImmutableList());
+            return buildAuthFilter(authFilters, new NoopMetricRegistry());
+        }
+
+        @Override
+        public <E extends Principal> AuthFilter<?, E> build(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final Environment environment) {
+            checkDelegateSettings();
+            checkMetricsNamesUnique();
+            final ImmutableList<AuthFilter<?, E>> authFilters =
+                    delegates.stream()
+                            .<AuthFilter<?, E>>map(
+                                    d ->
+                                            d.build(
+                                                    principalConverter,
+                                                    authorizer,
+                                                    listeners,
+                                                    environment))
+                            .collect(ImmutableList.toImmutableList());
+            return buildAuthFilter(authFilters, environment.metrics());
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Credentials are present if any delegate's credentials are present, unknown if any
+         * delegate's presence is unknown, otherwise absent.
+         */
+        @Override
+        public CredentialMatcher buildCredentialMatcher() {
+            final ImmutableList<CredentialMatcher> matchers =
                     delegates.stream()
-                            .map(d -> d.build(principalConverter, authorizer, listeners))
+                            .map(ExternallyAuthenticatedAuthFilterFactory::buildCredentialMatcher)
                             .collect(ImmutableList.toImmutableList());
+            return requestContext -> {
+                CredentialMatcher.Presence result = CredentialMatcher.Presence.ABSENT;
+                for (final CredentialMatcher matcher : matchers) {
+                    final CredentialMatcher.Presence presence = matcher.match(requestContext);
+                    if (presence == CredentialMatcher.Presence.PRESENT) {
+                        return presence;
+                    }
+                    if (presence == CredentialMatcher.Presence.UNKNOWN) {
+                        result = presence;
+                    }
+                }
+                return result;
+            };
+        }
+
+        // -------------------------------------------------------------------------
+        // PACKAGE METHODS
+        // -------------------------------------------------------------------------
+
+        @Override
+        List<String> getAllMetricsNames() {
+            final ImmutableList.Builder<String> names = ImmutableList.builder();
+            names.add(getMetricsName());
+            delegates.forEach(d -> names.addAll(d.getAllMetricsNames()));
+            return names.build();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>The scheme of the first delegate, which rejects requests carrying no credentials.
+         */
+        @Override
+        String getChallengePrefix() {
+            return delegates.get(0).getChallengePrefix();
+        }
+
+        // -------------------------------------------------------------------------
+        // PRIVATE METHODS
+        // -------------------------------------------------------------------------
+
+        /**
+         * Ensures no delegate sets options which only apply to the top-level filter, as they would
+         * otherwise be silently ignored.
+         *
+         * @throws IllegalArgumentException If a delegate sets a top-level only option.
+         */
+        private void checkDelegateSettings() {
+            for (final ExternallyAuthenticatedAuthFilterFactory delegate : delegates) {
+                if (delegate.getAsyncEventDispatch().isPresent()
+                        || !delegate.getKnownRoles().isEmpty()) {
+                    throw new IllegalArgumentException(
+                            "asyncEventDispatch and knownRoles can only be defined on the"
+                                    + " top-level authentication configuration, not on the"
+                                    + " delegates of a chained filter");
+                }
+            }
+        }
+
+        /**
+         * Ensures the metrics of each filter in the chain are recorded against a different name, so
+         * that filters do not silently share (or replace) each other's metrics.
+         *
+         * @throws IllegalArgumentException If more than one filter uses the same metrics name.
+         */
+        private void checkMetricsNamesUnique() {
+            final Set<String> names = new HashSet<>();
+            for (final String name : getAllMetricsNames()) {
+                if (!names.add(name)) {
+                    throw new IllegalArgumentException(
+                            "Metrics name ["
+                                    + name
+                                    + "] is used by more than one filter in the chain. Set a"
+                                    + " unique metricsName on each delegate in authentication"
+                                    + " configuration");
+                }
+            }
+        }
+
+        /**
+         * Returns an {@link AuthFilter} which dispatches requests to the supplied filters as per
+         * {@link #dispatch}, protected as per {@link #floodProtection}.
+         *
+         * @param authFilters The filters to delegate to.
+         * @param metricRegistry Registry to record metrics in.
+         * @param <E> The {@link Principal} the filter should return.
+         * @return An {@link AuthFilter} which dispatches requests to the supplied filters.
+         */
+        private <E extends Principal> AuthFilter<?, E> buildAuthFilter(
+                final ImmutableList<AuthFilter<?, E>> authFilters,
+                final MetricRegistry metricRegistry) {
+            final Timer timer =
+                    metricRegistry.timer(AuthenticationMetrics.name(getMetricsName(), "filter"));
+            final Histogram successfulDelegate =
+                    metricRegistry.histogram(
+                            AuthenticationMetrics.name(getMetricsName(), "successful-delegate"));
+            final AuthFilter<?, E> authFilter;
+            if (dispatch == Dispatch.ORDERED) {
+                authFilter =
+                        new InstrumentedChainedAuthFilter<>(
+                                authFilters,
+                                timer,
+                                successfulDelegate,
+                                getChallengePrefix(),
+                                DEFAULT_REALM);
+            } else {
+                final ImmutableList<CredentialMatcher> matchers =
+                        delegates.stream()
+                                .map(d -> d.buildCredentialMatcher())
+                                .collect(ImmutableList.toImmutableList());
+                authFilter =
+                        new RoutingChainedAuthFilter<>(
+                                authFilters,
+                                matchers,
+                                timer,
+                                successfulDelegate,
+                                metricRegistry.meter(
+                                        AuthenticationMetrics.name(
+                                                getMetricsName(), "ordered-trial")),
+                                getChallengePrefix(),
+                                DEFAULT_REALM);
+            }
+            return floodProtection == null
+                    ? authFilter
+                    : floodProtection.build(authFilter, metricRegistry, getMetricsName());
+        }
+
+        // -------------------------------------------------------------------------
+        // INNER CLASSES
+        // -------------------------------------------------------------------------
+
+        /** How requests are dispatched to the delegates. */
+        public enum Dispatch {
+            /** Try each delegate in turn until one authenticates the request. */
+            ORDERED,
 
-            // This is "unchecked" because we may have different types of C (credentials)
-            // which is ok.
-            // We're not actually checking that we have the same E for all delegates either.
-            return new ChainedAuthFilter(authFilters);
+            /**
+             * Send each request straight to the delegate whose credentials are present in it.
+             * Delegates are only tried in turn if the credentials are ambiguous.
+             */
+            ROUTED
         }
     }
 
@@ -206,8 +743,57 @@ public abstract class ExternallyAuthenticatedAuthFilterFactory implements Discov
                 final PrincipalConverter<E> principalConverter,
                 final Authorizer<E> authorizer,
                 final Iterable<AuthenticationEventListener> listeners) {
+            return buildAuthFilter(
+                    principalConverter, authorizer, listeners, new NoopMetricRegistry());
+        }
+
+        @Override
+        public <E extends Principal> AuthFilter<?, E> build(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final Environment environment) {
+            return buildAuthFilter(
+                    principalConverter, authorizer, listeners, environment.metrics());
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>Always present, as the filter authenticates every request.
+         */
+        @Override
+        public CredentialMatcher buildCredentialMatcher() {
+            return requestContext -> CredentialMatcher.Presence.PRESENT;
+        }
+
+        // -------------------------------------------------------------------------
+        // PRIVATE METHODS
+        // -------------------------------------------------------------------------
+
+        /**
+         * Returns an {@link AuthFilter} which returns a fixed principal.
+         *
+         * @param principalConverter Converter between {@link InternalUser} and the {@link
+         *     Principal} used in the system.
+         * @param authorizer The {@link Authorizer} to use.
+         * @param listeners The authentication event listeners
+         * @param metricRegistry Registry to record metrics in.
+         * @param <E> The {@link Principal} the filter should return.
+         * @return An {@link AuthFilter} which returns a fixed principal.
+         */
+        private <E extends Principal> AuthFilter<?, E> buildAuthFilter(
+                final PrincipalConverter<E> principalConverter,
+                final Authorizer<E> authorizer,
+                final Iterable<AuthenticationEventListener> listeners,
+                final MetricRegistry metricRegistry) {
             return new DevAuthFilter.Builder<E>()
-                    .setAuthenticator(new DevAuthenticator<>(principalConverter, user, listeners))
+                    .setAuthenticator(
+                            new DevAuthenticator<>(
+                                    principalConverter,
+                                    user,
+                                    listeners,
+                                    new AuthenticationMetrics(metricRegistry, getMetricsName())))
                     .setAuthorizer(authorizer)
                     .buildAuthFilter();
         }
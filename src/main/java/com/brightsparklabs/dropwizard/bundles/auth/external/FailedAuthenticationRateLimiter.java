@@ -0,0 +1,138 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits the rate of failed authentications per client, as a token bucket which each failure
+ * drains and which refills at a fixed rate.
+ *
+ * <p>Clients are hashed onto a fixed number of stripes, each holding a single {@code long} which
+ * is updated lock-free. Clients which hash to the same stripe share a bucket, so use enough stripes
+ * that collisions between active clients are rare. Memory use is fixed regardless of the number of
+ * clients.
+ *
+ * <p>Each bucket is stored as the time at which it will next be full (as per the generic cell rate
+ * algorithm), rather than as a count of tokens, so that it can be read and updated atomically.
+ *
+ * @author brightSPARK Labs
+ */
+final class FailedAuthenticationRateLimiter {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Time, per stripe, at which the bucket will next be full. */
+    private final AtomicLongArray fullAt;
+
+    /** Mask applied to client hashes to select a stripe. */
+    private final int mask;
+
+    /** Time taken to refill one token. */
+    private final long refillNanos;
+
+    /** Time a bucket can be behind by before it is empty. I.e. the capacity less one token. */
+    private final long toleranceNanos;
+
+    /** Source of the current time. */
+    private final Ticker ticker;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param stripes Minimum number of buckets to hash clients onto. Rounded up to a power of two.
+     * @param failuresPerSecond Rate at which each bucket refills.
+     * @param burst Capacity of each bucket. I.e. number of failures a client can make at once.
+     * @param ticker Source of the current time.
+     */
+    FailedAuthenticationRateLimiter(
+            final int stripes,
+            final double failuresPerSecond,
+            final int burst,
+            final Ticker ticker) {
+        Preconditions.checkArgument(stripes > 0 && stripes <= 1 << 30, "Invalid stripes");
+        Preconditions.checkArgument(failuresPerSecond > 0, "failuresPerSecond must be positive");
+        Preconditions.checkArgument(burst > 0, "burst must be positive");
+        final int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.fullAt = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.refillNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / failuresPerSecond));
+        this.toleranceNanos = refillNanos * (burst - 1);
+        this.ticker = ticker;
+        // Start every bucket full, regardless of the ticker's origin.
+        final long now = ticker.read();
+        for (int i = 0; i < size; i++) {
+            fullAt.set(i, now - refillNanos);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns how long the client must wait before its next failure is permitted.
+     *
+     * @param client Identifies the client, e.g. its IP address.
+     * @return The time in nanoseconds until the client's next failure is permitted, or {@code 0}
+     *     if the client is not being limited.
+     */
+    long getDelayNanos(final String client) {
+        final long delay = fullAt.get(stripe(client)) - ticker.read() - toleranceNanos;
+        return Math.max(0, delay);
+    }
+
+    /**
+     * Records a failed authentication by the client, draining a token from its bucket.
+     *
+     * @param client Identifies the client, e.g. its IP address.
+     */
+    void recordFailure(final String client) {
+        final int stripe = stripe(client);
+        final long now = ticker.read();
+        long current;
+        long next;
+        do {
+            current = fullAt.get(stripe);
+            next = Math.max(current, now) + refillNanos;
+        } while (!fullAt.compareAndSet(stripe, current, next));
+    }
+
+    /**
+     * Returns the number of stripes clients are hashed onto.
+     *
+     * @return The number of stripes clients are hashed onto.
+     */
+    int getStripes() {
+        return fullAt.length();
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the stripe the client is hashed onto.
+     *
+     * @param client Identifies the client.
+     * @return The index of the stripe.
+     */
+    private int stripe(final String client) {
+        final int hash = client.hashCode();
+        // Spread the high bits, as per HashMap, since only the low bits are used.
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.Meter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.auth.oauth.OAuthCredentialAuthFilter;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.SecurityContext;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AuthFilter} which protects its delegate from floods of invalid tokens, rejecting
+ * requests before any verification takes place (and before any listeners are notified) if:
+ *
+ * <ol>
+ *   <li>The request carries a token which the delegate recently rejected.
+ *   <li>The client has recently failed to authenticate too many times, and the request does not
+ *       carry a token which the delegate recently accepted.
+ * </ol>
+ *
+ * <p>Tokens which the delegate rejected for a reason which may not persist are not remembered, so
+ * they are verified again when next presented. E.g. a token signed with a key which has not been
+ * loaded yet after a key rotation, or a token which is not valid yet. See {@link
+ * ExternalAuthenticator#RETRYABLE_DENIAL_PROPERTY}.
+ *
+ * <p>Clients which hash to the same stripe of the {@link FailedAuthenticationRateLimiter} share a
+ * limit, so a flooding client can also limit an unrelated client. Since tokens the delegate
+ * recently accepted are not limited, such a client is only affected when presenting a new token.
+ *
+ * <p>Clients are identified by the address recorded by {@link ClientAddressFilter}, so this filter
+ * works wherever it sits within a chain, whether or not Jersey injects it. If the filter is run
+ * behind a proxy, configure Jetty to honour the {@code X-Forwarded-For} header so this is the
+ * address of the client rather than the proxy. Requests whose address was not recorded are not
+ * rate limited. Requests which do not carry a token are passed straight to the delegate.
+ *
+ * @param <P> the type of the principal
+ * @author brightSPARK Labs
+ */
+@Priority(Priorities.AUTHENTICATION)
+public class FloodProtectionAuthFilter<P extends Principal> extends AuthFilter<Object, P> {
+    // -------------------------------------------------------------------------
+    // CONSTANTS
+    // -------------------------------------------------------------------------
+
+    /** Number of nanoseconds in a second. */
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // -------------------------------------------------------------------------
+    // CLASS VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Class logger */
+    private static final Logger logger = LoggerFactory.getLogger(FloodProtectionAuthFilter.class);
+
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** The filter to protect. */
+    private final AuthFilter<?, P> delegate;
+
+    /**
+     * Digests of tokens recently rejected by the delegate, mapped to the {@code WWW-Authenticate}
+     * challenge the delegate responded with (or an empty string if none).
+     */
+    private final Cache<HashCode, String> rejectedTokens;
+
+    /** Digests of tokens recently accepted by the delegate. These are never rate limited. */
+    private final Cache<HashCode, Boolean> acceptedTokens;
+
+    /** Limits the rate of failed authentications per client. */
+    private final FailedAuthenticationRateLimiter rateLimiter;
+
+    /** Status to respond with when a client is rate limited. */
+    private final RejectionStatus rateLimitStatus;
+
+    /** Rate of requests rejected because they carried a recently rejected token. */
+    private final Meter rejectedTokenRejections;
+
+    /** Rate of requests rejected because the client has failed to authenticate too often. */
+    private final Meter rateLimitRejections;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new filter.
+     *
+     * @param delegate The filter to protect.
+     * @param rejectedTokens Cache to record the digests of tokens rejected by the delegate in.
+     * @param acceptedTokens Cache to record the digests of tokens accepted by the delegate in.
+     * @param rateLimiter Limits the rate of failed authentications per client.
+     * @param rateLimitStatus Status to respond with when a client is rate limited.
+     * @param rejectedTokenRejections Rate of requests rejected because they carried a recently
+     *     rejected token.
+     * @param rateLimitRejections Rate of requests rejected because the client has failed to
+     *     authenticate too often.
+     */
+    FloodProtectionAuthFilter(
+            final AuthFilter<?, P> delegate,
+            final Cache<HashCode, String> rejectedTokens,
+            final Cache<HashCode, Boolean> acceptedTokens,
+            final FailedAuthenticationRateLimiter rateLimiter,
+            final RejectionStatus rateLimitStatus,
+            final Meter rejectedTokenRejections,
+            final Meter rateLimitRejections) {
+        this.delegate = delegate;
+        this.rejectedTokens = rejectedTokens;
+        this.acceptedTokens = acceptedTokens;
+        this.rateLimiter = rateLimiter;
+        this.rateLimitStatus = rateLimitStatus;
+        this.rejectedTokenRejections = rejectedTokenRejections;
+        this.rateLimitRejections = rateLimitRejections;
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: AuthFilter
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) throws IOException {
+        final HashCode tokenDigest = digestToken(requestContext);
+        if (tokenDigest == null) {
+            // Requests without a token are cheap to reject, so need no protection.
+            delegate.filter(requestContext);
+            return;
+        }
+
+        final String challenge = rejectedTokens.getIfPresent(tokenDigest);
+        if (challenge != null) {
+            rejectedTokenRejections.mark();
+            logger.debug("Authentication failed - token was recently rejected");
+            throw new WebApplicationException(buildUnauthorizedResponse(challenge));
+        }
+
+        final String client = ClientAddressFilter.getClientAddress(requestContext);
+        if (client != null && acceptedTokens.getIfPresent(tokenDigest) == null) {
+            final long delayNanos = rateLimiter.getDelayNanos(client);
+            if (delayNanos > 0) {
+                rateLimitRejections.mark();
+                logger.debug("Authentication failed - client [{}] is rate limited", client);
+                throw new WebApplicationException(buildRateLimitedResponse(delayNanos));
+            }
+        }
+
+        final SecurityContext securityContext = requestContext.getSecurityContext();
+        try {
+            delegate.filter(requestContext);
+        } catch (WebApplicationException ex) {
+            final Response response = ex.getResponse();
+            if (response != null && response.getStatus() == Status.UNAUTHORIZED.getStatusCode()) {
+                acceptedTokens.invalidate(tokenDigest);
+                if (requestContext.getProperty(ExternalAuthenticator.RETRYABLE_DENIAL_PROPERTY)
+                        == null) {
+                    rejectedTokens.put(
+                            tokenDigest,
+                            Strings.nullToEmpty(
+                                    response.getHeaderString(HttpHeaders.WWW_AUTHENTICATE)));
+                }
+                if (client != null) {
+                    rateLimiter.recordFailure(client);
+                }
+            }
+            throw ex;
+        }
+        if (requestContext.getSecurityContext() != securityContext) {
+            acceptedTokens.put(tokenDigest, Boolean.TRUE);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the digest of the token carried by the request. I.e. the {@code Authorization}
+     * header, or the {@value OAuthCredentialAuthFilter#OAUTH_ACCESS_TOKEN_PARAM} query parameter.
+     *
+     * @param requestContext The request.
+     * @return The SHA-256 digest of the token, or {@code null} if the request has no token.
+     */
+    private static HashCode digestToken(final ContainerRequestContext requestContext) {
+        String token = requestContext.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (Strings.isNullOrEmpty(token)) {
+            token =
+                    requestContext
+                            .getUriInfo()
+                            .getQueryParameters()
+                            .getFirst(OAuthCredentialAuthFilter.OAUTH_ACCESS_TOKEN_PARAM);
+        }
+        return Strings.isNullOrEmpty(token)
+                ? null
+                : Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns a response rejecting a recently rejected token.
+     *
+     * @param challenge The challenge the delegate rejected the token with, or an empty string.
+     * @return A response rejecting a recently rejected token.
+     */
+    private static Response buildUnauthorizedResponse(final String challenge) {
+        final Response.ResponseBuilder builder = Response.status(Status.UNAUTHORIZED);
+        if (!challenge.isEmpty()) {
+            builder.header(HttpHeaders.WWW_AUTHENTICATE, challenge);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns a response rejecting a rate limited client.
+     *
+     * @param delayNanos Time until the client's next failure is permitted.
+     * @return A response rejecting a rate limited client.
+     */
+    private Response buildRateLimitedResponse(final long delayNanos) {
+        if (rateLimitStatus == RejectionStatus.UNAUTHORIZED) {
+            return Response.status(Status.UNAUTHORIZED).build();
+        }
+        // Round up so the client does not retry before it is permitted.
+        final long retryAfterSeconds = (delayNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+        return Response.status(Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** Status to respond to rate limited clients with. */
+    public enum RejectionStatus {
+        /** {@code 401 Unauthorized}, as if the credentials had been verified and rejected. */
+        UNAUTHORIZED,
+
+        /** {@code 429 Too Many Requests}, with a {@code Retry-After} header. */
+        TOO_MANY_REQUESTS
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for a {@link FloodProtectionAuthFilter}.
+ *
+ * <p>This will be created by Dropwizard + Jackson.
+ *
+ * @author brightSPARK Labs
+ */
+public class FloodProtectionFactory {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Maximum number of rejected tokens to remember. Default: 10,000. */
+    @Min(1) @JsonProperty private long rejectedTokenCacheSize = 10_000;
+
+    /**
+     * Length of time to remember a rejected token for. Keep this short, as a token rejected due to
+     * a transient error (e.g. a JWKS which is being refreshed) is rejected until this elapses.
+     * Default: 1 minute.
+     */
+    @NotNull @MinDuration(value = 1, unit = TimeUnit.SECONDS) @JsonProperty
+    private Duration rejectedTokenTtl = Duration.minutes(1);
+
+    /** Maximum number of accepted tokens to remember. Default: 10,000. */
+    @Min(1) @JsonProperty private long acceptedTokenCacheSize = 10_000;
+
+    /**
+     * Length of time to remember an accepted token for. Requests carrying a token accepted within
+     * this time are not rate limited, although the token is still verified. Default: 5 minutes.
+     */
+    @NotNull @MinDuration(value = 1, unit = TimeUnit.SECONDS) @JsonProperty
+    private Duration acceptedTokenTtl = Duration.minutes(5);
+
+    /** Sustained rate of failed authentications permitted per client. Default: 1 per second. */
+    @Positive @JsonProperty private double failuresPerSecond = 1.0;
+
+    /** Number of failed authentications a client can make at once. Default: 10. */
+    @Min(1) @JsonProperty private int failureBurst = 10;
+
+    /**
+     * Number of buckets to hash clients onto when rate limiting. Clients which hash to the same
+     * bucket share a limit, although tokens accepted within {@link #acceptedTokenTtl} are never
+     * limited. Rounded up to a power of two. Default: 4,096.
+     */
+    @Min(1) @Max(1 << 30) @JsonProperty private int stripes = 4_096;
+
+    /** Status to respond to rate limited clients with. Default: {@code TOO_MANY_REQUESTS}. */
+    @NotNull @JsonProperty
+    private FloodProtectionAuthFilter.RejectionStatus rateLimitStatus =
+            FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS;
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Builds a filter which protects the supplied filter using this configuration.
+     *
+     * @param delegate The filter to protect.
+     * @param metricRegistry Registry to record metrics in.
+     * @param filterType Type of the filter being protected (e.g. {@code jwt}), used to name the
+     *     metrics.
+     * @param <P> The {@link Principal} the filter returns.
+     * @return A filter which protects the supplied filter.
+     */
+    public <P extends Principal> AuthFilter<?, P> build(
+            final AuthFilter<?, P> delegate,
+            final MetricRegistry metricRegistry,
+            final String filterType) {
+        return new FloodProtectionAuthFilter<>(
+                delegate,
+                Caffeine.newBuilder()
+                        .maximumSize(rejectedTokenCacheSize)
+                        .expireAfterWrite(rejectedTokenTtl.toJavaDuration())
+                        .build(),
+                Caffeine.newBuilder()
+                        .maximumSize(acceptedTokenCacheSize)
+                        .expireAfterWrite(acceptedTokenTtl.toJavaDuration())
+                        .build(),
+                new FailedAuthenticationRateLimiter(
+                        stripes, failuresPerSecond, failureBurst, Ticker.systemTicker()),
+                rateLimitStatus,
+                metricRegistry.meter(
+                        AuthenticationMetrics.name(
+                                filterType, "flood-protection", "rejected-token")),
+                metricRegistry.meter(
+                        AuthenticationMetrics.name(filterType, "flood-protection", "rate-limit")));
+    }
+}
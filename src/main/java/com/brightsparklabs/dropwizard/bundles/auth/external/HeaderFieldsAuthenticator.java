@@ -7,6 +7,7 @@
 
 package com.brightsparklabs.dropwizard.bundles.auth.external;
 
+import com.codahale.metrics.Timer;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
@@ -33,7 +34,7 @@ public class HeaderFieldsAuthenticator<P extends Principal>
     // -------------------------------------------------------------------------
 
     /** Default field to use to extract the username */
-    private static final String DEFAULT_FIELD_USERNAME = "X-Auth-Username";
+    static final String DEFAULT_FIELD_USERNAME = "X-Auth-Username";
 
     /** Default field to use to extract the firstname */
     private static final String DEFAULT_FIELD_FIRSTNAME = "X-Auth-Given-Name";
@@ -81,6 +82,21 @@ public class HeaderFieldsAuthenticator<P extends Principal>
         super(principalConverter, listeners);
     }
 
+    /**
+     * Creates a new authenticator which records timings against the supplied metrics.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param listeners The authentication event listeners
+     * @param metrics Metrics to record authentication timings and outcomes against.
+     */
+    public HeaderFieldsAuthenticator(
+            final PrincipalConverter<P> principalConverter,
+            final Iterable<AuthenticationEventListener> listeners,
+            final AuthenticationMetrics metrics) {
+        super(principalConverter, listeners, metrics);
+    }
+
     // -------------------------------------------------------------------------
     // IMPLEMENTATION:  ExternalAuthenticator
     // -------------------------------------------------------------------------
@@ -93,6 +109,28 @@ public class HeaderFieldsAuthenticator<P extends Principal>
             throw new AuthenticationDeniedException("No header fields provided to authenticator");
         }
 
+        try (Timer.Context ignored = getMetrics().getClaimExtraction().time()) {
+            return extractUser(headers);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the user described by the supplied header fields.
+     *
+     * @param headers The header fields from the request.
+     * @return The user described by the header fields.
+     * @throws AuthenticationDeniedException If the header fields do not describe a valid user.
+     */
+    private InternalUser extractUser(final MultivaluedMap<String, String> headers)
+            throws AuthenticationDeniedException {
         // extract groups and roles
         final ImmutableList<String> groups =
                 headers.getOrDefault(DEFAULT_FIELD_GROUPS, ImmutableList.of()).stream()
@@ -128,14 +166,6 @@ public class HeaderFieldsAuthenticator<P extends Principal>
         }
     }
 
-    // -------------------------------------------------------------------------
-    // PUBLIC METHODS
-    // -------------------------------------------------------------------------
-
-    // -------------------------------------------------------------------------
-    // PRIVATE METHODS
-    // -------------------------------------------------------------------------
-
     private String extractHeaderValue(
             final String headerName, final MultivaluedMap<String, String> headers)
             throws IllegalArgumentException {
@@ -0,0 +1,133 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import io.dropwizard.auth.AuthFilter;
+import io.dropwizard.auth.chained.ChainedAuthFilter;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.SecurityContext;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * An {@link AuthFilter} which tries each of its delegates in turn until one authenticates the
+ * request. Behaves the same as {@link ChainedAuthFilter}, but also records how long the chain takes
+ * and which delegate authenticated the request.
+ *
+ * <p>If no delegate authenticates the request, the exception thrown by the first delegate which
+ * rejected it is rethrown (as per {@link ChainedAuthFilter}), so the client receives that
+ * delegate's challenge (e.g. {@code WWW-Authenticate}). If no delegate rejected it either, the
+ * request is rejected with the challenge the filter was created with.
+ *
+ * <p>Subclasses can limit which delegates are tried for each request via {@link
+ * #selectDelegates(ContainerRequestContext)}.
+ *
+ * @param <P> the type of the principal
+ * @author brightSPARK Labs
+ */
+@Priority(Priorities.AUTHENTICATION)
+public class InstrumentedChainedAuthFilter<P extends Principal> extends AuthFilter<Object, P> {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** The filters to try, in order. */
+    private final ImmutableList<AuthFilter<?, P>> delegates;
+
+    /** Time taken to run the chain. */
+    private final Timer timer;
+
+    /** Index (within the chain) of the delegate which authenticated each request. */
+    private final Histogram successfulDelegate;
+
+    /** Indices of all the delegates, in order. */
+    private final int[] allDelegates;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new filter.
+     *
+     * @param delegates The filters to try, in order.
+     * @param timer Time taken to run the chain.
+     * @param successfulDelegate Index (within the chain) of the delegate which authenticated each
+     *     request.
+     * @param challengePrefix Scheme of the challenge to reject requests which no delegate rejected
+     *     with (e.g. {@code Bearer}). Typically that of the first delegate.
+     * @param realm Realm of the challenge to reject requests which no delegate rejected with.
+     */
+    public InstrumentedChainedAuthFilter(
+            final List<AuthFilter<?, P>> delegates,
+            final Timer timer,
+            final Histogram successfulDelegate,
+            final String challengePrefix,
+            final String realm) {
+        this.delegates = ImmutableList.copyOf(delegates);
+        this.prefix = challengePrefix;
+        this.realm = realm;
+        this.timer = timer;
+        this.successfulDelegate = successfulDelegate;
+        this.allDelegates = IntStream.range(0, delegates.size()).toArray();
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: AuthFiler
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) throws IOException {
+        try (Timer.Context ignored = timer.time()) {
+            WebApplicationException firstException = null;
+            for (final int i : selectDelegates(requestContext)) {
+                final SecurityContext securityContext = requestContext.getSecurityContext();
+                try {
+                    delegates.get(i).filter(requestContext);
+                    // Delegates replace the security context when they authenticate the request.
+                    if (securityContext != requestContext.getSecurityContext()) {
+                        successfulDelegate.update(i);
+                        return;
+                    }
+                } catch (WebApplicationException ex) {
+                    if (firstException == null) {
+                        firstException = ex;
+                    }
+                }
+            }
+            throw firstException != null
+                    ? firstException
+                    : new WebApplicationException(unauthorizedHandler.buildResponse(prefix, realm));
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the indices of the delegates to try for the request, in the order to try them.
+     *
+     * <p>Defaults to all delegates, in the order they were supplied.
+     *
+     * @param requestContext The request being authenticated.
+     * @return The indices of the delegates to try for the request. The returned array must not be
+     *     modified.
+     */
+    protected int[] selectDelegates(final ContainerRequestContext requestContext) {
+        return allDelegates;
+    }
+}
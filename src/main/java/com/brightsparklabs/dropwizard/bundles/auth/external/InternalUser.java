@@ -8,15 +8,22 @@
 package com.brightsparklabs.dropwizard.bundles.auth.external;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableSet;
 import java.security.Principal;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.immutables.value.Value;
 
 /**
  * An authenticated user as used internally by this bundle. Clients should translate this into the
  * type of {@link Principal} used within their systems.
  *
+ * <p>Users are equal if their attributes are equal, regardless of implementation. This allows an
+ * {@link ImmutableInternalUser} to be compared with a user whose groups and roles are computed
+ * lazily.
+ *
  * @author brightSPARK Labs
  */
 @Value.Immutable
@@ -30,6 +37,55 @@ public abstract class InternalUser implements Principal {
     // CLASS VARIABLES
     // -------------------------------------------------------------------------
 
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Object
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof InternalUser)) {
+            return false;
+        }
+        final InternalUser that = (InternalUser) other;
+        return getUsername().equals(that.getUsername())
+                && getFirstname().equals(that.getFirstname())
+                && getLastname().equals(that.getLastname())
+                && getEmail().equals(that.getEmail())
+                && getLogoutUrl().equals(that.getLogoutUrl())
+                && getGroups().equals(that.getGroups())
+                && getRoles().equals(that.getRoles());
+    }
+
+    /**
+     * Hashes the scalar attributes only, so that hashing does not compute lazy groups and roles.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                getUsername(), getFirstname(), getLastname(), getEmail(), getLogoutUrl());
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper("InternalUser")
+                .omitNullValues()
+                .add("username", getUsername())
+                .add("firstname", getFirstname())
+                .add("lastname", getLastname())
+                .add("email", getEmail().orElse(null))
+                .add("groups", getGroups())
+                .add("roles", getRoles())
+                .add("logoutUrl", getLogoutUrl().orElse(null))
+                .toString();
+    }
+
     // -------------------------------------------------------------------------
     // PUBLIC METHODS
     // -------------------------------------------------------------------------
@@ -88,4 +144,19 @@ public abstract class InternalUser implements Principal {
      * @return URL for logging out the user.
      */
     public abstract Optional<String> getLogoutUrl();
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Performs the action for each of the user's roles. Roles may be supplied more than once.
+     * Overridden by users which can supply their roles without building {@link #getRoles()}.
+     * Used by {@link RoleRegistry#bitSetOf(InternalUser)}.
+     *
+     * @param action The action to perform for each role.
+     */
+    void forEachRole(final Consumer<String> action) {
+        getRoles().forEach(action);
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.security.Key;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Locates the key to verify a JWS with from a JSON Web Key Set (JWKS), indexed by key id ({@code
+ * kid}).
+ *
+ * <p>The key set is reloaded periodically on a background thread and swapped in atomically, so
+ * refreshing never blocks the request path. A JWS signed with an unknown key id is rejected with an
+ * {@link UnknownKeyIdException} and triggers an early (rate-limited) refresh, so newly rotated keys
+ * are picked up without waiting for the next scheduled refresh.
+ *
+ * <p>Listeners registered via {@link #addKeySetListener(Runnable)} are notified whenever the loaded
+ * keys change, so state derived from the old keys (e.g. cached verifications) can be discarded.
+ *
+ * @author brightSPARK Labs
+ */
+public class JwksKeyLocator extends LocatorAdapter<Key> implements Managed {
+    // -------------------------------------------------------------------------
+    // CLASS VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Class logger */
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyLocator.class);
+
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Location of the key set. Either a {@code file:} or {@code http(s):} URI. */
+    private final URI location;
+
+    /** How often to reload the key set. */
+    private final Duration refreshInterval;
+
+    /** Minimum time between reloads triggered by unknown key ids. */
+    private final Duration minimumRefreshInterval;
+
+    /** Connect/read timeout (in milliseconds) when loading the key set. */
+    private final int timeoutMillis;
+
+    /** Current keys, indexed by key id. */
+    private final AtomicReference<ImmutableMap<String, PublicKey>> keys =
+            new AtomicReference<>(ImmutableMap.of());
+
+    /** Time (from {@link System#nanoTime()}) the key set was last reloaded. */
+    private final AtomicLong lastRefreshNanos = new AtomicLong();
+
+    /** Notified whenever the loaded keys change. */
+    private final List<Runnable> keySetListeners = new CopyOnWriteArrayList<>();
+
+    /** Runs the reloads. Only present once started. */
+    private volatile ScheduledExecutorService scheduler;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new locator. The key set is not loaded until the locator is started.
+     *
+     * @param location Location of the key set. Either a {@code file:} or {@code http(s):} URI.
+     * @param refreshInterval How often to reload the key set.
+     * @param minimumRefreshInterval Minimum time between reloads triggered by unknown key ids.
+     * @param timeout Connect/read timeout when loading the key set.
+     * @throws ArithmeticException If the timeout is more than {@link Integer#MAX_VALUE}
+     *     milliseconds.
+     */
+    JwksKeyLocator(
+            final URI location,
+            final Duration refreshInterval,
+            final Duration minimumRefreshInterval,
+            final Duration timeout) {
+        this.location = location;
+        this.refreshInterval = refreshInterval;
+        this.minimumRefreshInterval = minimumRefreshInterval;
+        this.timeoutMillis = Math.toIntExact(timeout.toMillis());
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Managed
+    // -------------------------------------------------------------------------
+
+    /**
+     * Loads the key set and schedules it to be reloaded periodically.
+     *
+     * @throws IOException If the key set could not be loaded.
+     */
+    @Override
+    public synchronized void start() throws IOException {
+        if (scheduler != null) {
+            return;
+        }
+        refresh();
+        scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder()
+                                .setNameFormat("jwks-refresh-%d")
+                                .setDaemon(true)
+                                .build());
+        final long intervalMillis = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(
+                this::refreshQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: LocatorAdapter
+    // -------------------------------------------------------------------------
+
+    @Override
+    protected Key locate(final JwsHeader header) {
+        final ImmutableMap<String, PublicKey> currentKeys = keys.get();
+        final String keyId = header.getKeyId();
+        if (keyId == null) {
+            // Without a key id we can only be sure which key to use if there is exactly one.
+            return currentKeys.size() == 1 ? currentKeys.values().iterator().next() : null;
+        }
+
+        final PublicKey key = currentKeys.get(keyId);
+        if (key == null) {
+            logger.info("JWS signed with unknown key id [{}]", keyId);
+            requestRefresh();
+            throw new UnknownKeyIdException("JWS signed with unknown key id [" + keyId + "]");
+        }
+        return key;
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the keys currently loaded, indexed by key id.
+     *
+     * @return The keys currently loaded, indexed by key id.
+     */
+    public ImmutableMap<String, PublicKey> getKeys() {
+        return keys.get();
+    }
+
+    /**
+     * Registers a listener to notify whenever the loaded keys change, i.e. a key is added, removed
+     * or replaced. Listeners are notified on the thread which reloaded the key set.
+     *
+     * @param listener The listener to notify.
+     */
+    public void addKeySetListener(final Runnable listener) {
+        keySetListeners.add(listener);
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Reloads the key set on the background thread, unless it has been reloaded within the
+     * minimum refresh interval.
+     */
+    private void requestRefresh() {
+        final ScheduledExecutorService currentScheduler = scheduler;
+        if (currentScheduler == null) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long lastRefresh = lastRefreshNanos.get();
+        if (now - lastRefresh < minimumRefreshInterval.toNanos()) {
+            return;
+        }
+        // Only the caller which wins the race schedules the reload.
+        if (lastRefreshNanos.compareAndSet(lastRefresh, now)) {
+            try {
+                currentScheduler.execute(this::refreshQuietly);
+            } catch (RejectedExecutionException ex) {
+                // Locator has been stopped, nothing to refresh.
+            }
+        }
+    }
+
+    /** Reloads the key set, logging (rather than throwing) any failure. */
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception ex) {
+            logger.warn("Could not refresh JWKS from [{}] - retaining existing keys", location, ex);
+        }
+    }
+
+    /**
+     * Reloads the key set and swaps it in.
+     *
+     * @throws IOException If the key set could not be loaded.
+     */
+    private void refresh() throws IOException {
+        lastRefreshNanos.set(System.nanoTime());
+        final JwkSet jwkSet;
+        final URLConnection connection = location.toURL().openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        try (InputStream in = connection.getInputStream()) {
+            jwkSet = Jwks.setParser().build().parse(in);
+        }
+
+        final ImmutableMap.Builder<String, PublicKey> builder = ImmutableMap.builder();
+        for (final Jwk<?> jwk : jwkSet.getKeys()) {
+            final Key key = jwk.toKey();
+            if (jwk.getId() == null || !(key instanceof PublicKey)) {
+                logger.warn("Ignoring JWK without key id or which is not a public key");
+                continue;
+            }
+            builder.put(jwk.getId(), (PublicKey) key);
+        }
+        final ImmutableMap<String, PublicKey> newKeys = builder.buildKeepingLast();
+        final ImmutableMap<String, PublicKey> previousKeys = keys.getAndSet(newKeys);
+        logger.info("Loaded JWKS from [{}] with key ids {}", location, newKeys.keySet());
+        if (!newKeys.equals(previousKeys)) {
+            keySetListeners.forEach(Runnable::run);
+        }
+    }
+}
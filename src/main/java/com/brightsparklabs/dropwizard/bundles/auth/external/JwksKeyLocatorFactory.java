@@ -0,0 +1,80 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MaxDuration;
+import io.dropwizard.validation.MinDuration;
+import jakarta.validation.constraints.NotNull;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for a {@link JwksKeyLocator}.
+ *
+ * <p>This will be created by Dropwizard + Jackson.
+ *
+ * @author brightSPARK Labs
+ */
+public class JwksKeyLocatorFactory {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Location of the JWKS. Either a {@code file:} or {@code http(s):} URI. */
+    @NotNull @JsonProperty private URI location;
+
+    /** How often to reload the JWKS. Default: 15 minutes. */
+    @NotNull @MinDuration(value = 1, unit = TimeUnit.SECONDS) @JsonProperty
+    private Duration refreshInterval = Duration.minutes(15);
+
+    /**
+     * Minimum time between reloads of the JWKS triggered by tokens signed with an unknown key id.
+     * Must be at least 1 second, so unknown key ids cannot trigger a reload per request. Default:
+     * 30 seconds.
+     */
+    @NotNull @MinDuration(value = 1, unit = TimeUnit.SECONDS) @JsonProperty
+    private Duration minimumRefreshInterval = Duration.seconds(30);
+
+    /**
+     * Connect/read timeout when loading the JWKS. At most {@link Integer#MAX_VALUE} milliseconds,
+     * as required by {@link java.net.URLConnection}. Default: 5 seconds.
+     */
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @MaxDuration(value = Integer.MAX_VALUE, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration timeout = Duration.seconds(5);
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the location of the JWKS.
+     *
+     * @return The location of the JWKS.
+     */
+    public URI getLocation() {
+        return location;
+    }
+
+    /**
+     * Builds a key locator using this configuration. The locator must be started before use.
+     *
+     * @return A key locator using this configuration.
+     */
+    public JwksKeyLocator build() {
+        return new JwksKeyLocator(
+                location,
+                refreshInterval.toJavaDuration(),
+                minimumRefreshInterval.toJavaDuration(),
+                timeout.toJavaDuration());
+    }
+}
@@ -7,21 +7,22 @@
 
 package com.brightsparklabs.dropwizard.bundles.auth.external;
 
+import com.brightsparklabs.dropwizard.bundles.auth.external.StreamingClaimsDeserializer.RawJson;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
+import java.security.Key;
 import java.security.KeyFactory;
 import java.security.Principal;
 import java.security.PublicKey;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.List;
+import java.time.Instant;
+import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,6 +69,22 @@ public class JwtAuthenticator<P extends Principal> extends ExternalAuthenticator
     /** Name of the claim containing the client roles of the user. */
     public static final String CLAIM_FIELD_RESOURCE_ACCESS = "resource_access";
 
+    /** Claims which are deserialized when using {@link ClaimDecoding#STREAMING}. */
+    private static final ImmutableSet<String> STREAMING_RETAINED_CLAIMS =
+            ImmutableSet.of(
+                    CLAIM_FIELD_USERNAME,
+                    CLAIM_FIELD_FIRSTNAME,
+                    CLAIM_FIELD_LASTNAME,
+                    CLAIM_FIELD_EMAIL);
+
+    /** Claims which are captured as raw JSON when using {@link ClaimDecoding#STREAMING}. */
+    private static final ImmutableSet<String> STREAMING_LAZY_CLAIMS =
+            ImmutableSet.of(
+                    CLAIM_FIELD_GROUPS,
+                    CLAIM_FIELD_ROLES,
+                    CLAIM_FIELD_REALM_ACCESS,
+                    CLAIM_FIELD_RESOURCE_ACCESS);
+
     // -------------------------------------------------------------------------
     // CLASS VARIABLES
     // -------------------------------------------------------------------------
@@ -82,6 +99,9 @@ public class JwtAuthenticator<P extends Principal> extends ExternalAuthenticator
     /** Parser for validating tokens */
     private final JwtParser jwtParser;
 
+    /** Cache of previously verified tokens, if enabled */
+    private final Optional<VerifiedTokenCache> verifiedTokenCache;
+
     // -------------------------------------------------------------------------
     // CONSTRUCTION
     // -------------------------------------------------------------------------
@@ -93,20 +113,80 @@ public class JwtAuthenticator<P extends Principal> extends ExternalAuthenticator
      * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
      *     used in the system.
      * @param signingKey signing key to use to validate tokens.
+     * @param listeners The authentication event listeners
      */
     JwtAuthenticator(
             final PrincipalConverter<P> principalConverter,
             final String signingKey,
             final Iterable<AuthenticationEventListener> listeners) {
-        super(principalConverter, listeners);
-        final X509EncodedKeySpec spec = new X509EncodedKeySpec(Decoders.BASE64.decode(signingKey));
-        PublicKey key = null;
-        try {
-            key = KeyFactory.getInstance("RSA").generatePublic(spec);
-        } catch (Exception ex) {
-            logger.error("Could not process public key", ex);
-        }
-        jwtParser = Jwts.parser().verifyWith(key).build();
+        this(principalConverter, signingKey, listeners, Optional.empty());
+    }
+
+    /**
+     * Creates a new authenticator which validates JWTs using the specified public signing key, and
+     * caches tokens it has already verified in the supplied cache.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param signingKey signing key to use to validate tokens.
+     * @param listeners The authentication event listeners
+     * @param verifiedTokenCache Cache of previously verified tokens, or {@link Optional#empty()}
+     *     to verify every token.
+     */
+    JwtAuthenticator(
+            final PrincipalConverter<P> principalConverter,
+            final String signingKey,
+            final Iterable<AuthenticationEventListener> listeners,
+            final Optional<VerifiedTokenCache> verifiedTokenCache) {
+        this(principalConverter, createJwtParser(signingKey), listeners, verifiedTokenCache);
+    }
+
+    /**
+     * Creates a new authenticator which validates JWTs using the supplied parser, and caches tokens
+     * it has already verified in the supplied cache.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param jwtParser Parser to use to validate tokens.
+     * @param listeners The authentication event listeners
+     * @param verifiedTokenCache Cache of previously verified tokens, or {@link Optional#empty()}
+     *     to verify every token.
+     */
+    JwtAuthenticator(
+            final PrincipalConverter<P> principalConverter,
+            final JwtParser jwtParser,
+            final Iterable<AuthenticationEventListener> listeners,
+            final Optional<VerifiedTokenCache> verifiedTokenCache) {
+        this(
+                principalConverter,
+                jwtParser,
+                listeners,
+                verifiedTokenCache,
+                AuthenticationMetrics.noop());
+    }
+
+    /**
+     * Creates a new authenticator which validates JWTs using the supplied parser, caches tokens it
+     * has already verified in the supplied cache, and records timings against the supplied
+     * metrics.
+     *
+     * @param principalConverter Converter between {@link InternalUser} and the {@link Principal}
+     *     used in the system.
+     * @param jwtParser Parser to use to validate tokens.
+     * @param listeners The authentication event listeners
+     * @param verifiedTokenCache Cache of previously verified tokens, or {@link Optional#empty()}
+     *     to verify every token.
+     * @param metrics Metrics to record authentication timings and outcomes against.
+     */
+    JwtAuthenticator(
+            final PrincipalConverter<P> principalConverter,
+            final JwtParser jwtParser,
+            final Iterable<AuthenticationEventListener> listeners,
+            final Optional<VerifiedTokenCache> verifiedTokenCache,
+            final AuthenticationMetrics metrics) {
+        super(principalConverter, listeners, metrics);
+        this.jwtParser = jwtParser;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     // -------------------------------------------------------------------------
@@ -115,45 +195,101 @@ public class JwtAuthenticator<P extends Principal> extends ExternalAuthenticator
 
     @Override
     public InternalUser doAuthenticate(final String jwt) throws AuthenticationDeniedException {
-        logger.info("Authenticating via JWT [{}] ...", jwt);
+        logger.debug("Authenticating via JWT [{}] ...", jwt);
+        final Optional<InternalUser> cachedUser = verifiedTokenCache.flatMap(c -> c.get(jwt));
+        if (cachedUser.isPresent()) {
+            logger.debug(
+                    "Authentication successful for username [{}] - JWT previously verified",
+                    cachedUser.get().getUsername());
+            return cachedUser.get();
+        }
+
         final Jws<Claims> jws;
-        try {
+        try (Timer.Context ignored = getMetrics().getSignatureVerification().time()) {
             jws = jwtParser.parseSignedClaims(jwt);
         } catch (JwtException ex) {
             logger.info("Authentication failed - JWT is invalid [{}]", ex.getMessage());
+            if (ex instanceof PrematureJwtException || ex instanceof UnknownKeyIdException) {
+                // Accepted once the token becomes valid or its key is loaded.
+                markDenialRetryable();
+            }
             throw new AuthenticationDeniedException(ex);
         }
 
         final Claims claims = jws.getPayload();
-        logger.info("JWT contains: {}", claims);
+        logger.debug("JWT contains: {}", claims);
 
-        try {
-            final InternalUser user =
-                    ImmutableInternalUser.builder()
-                            .username(extractClaimsValue(CLAIM_FIELD_USERNAME, claims))
-                            .firstname(extractClaimsValue(CLAIM_FIELD_FIRSTNAME, claims))
-                            .lastname(extractClaimsValue(CLAIM_FIELD_LASTNAME, claims))
-                            .email(Optional.ofNullable(claims.get(CLAIM_FIELD_EMAIL, String.class)))
-                            .groups(getGroups(claims))
-                            .roles(getRoles(claims))
-                            .logoutUrl(claims.getIssuer() + "/protocol/openid-connect/logout")
-                            .build();
+        try (Timer.Context ignored = getMetrics().getClaimExtraction().time()) {
+            final InternalUser user = createUser(claims);
             logger.info("Authentication successful for username [{}]", user.getUsername());
+            final Optional<Instant> expiry =
+                    Optional.ofNullable(claims.getExpiration()).map(Date::toInstant);
+            verifiedTokenCache.ifPresent(c -> c.put(jwt, user, expiry));
             return user;
         } catch (IllegalArgumentException ex) {
             final String errorMessage =
                     String.format(
-                            "Authentication denied for JWT [%s] - %s",
-                            claims.toString(), ex.getMessage());
+                            "Authentication denied for JWT with subject [%s] - %s",
+                            claims.getSubject(), ex.getMessage());
             logger.info(errorMessage);
             throw new AuthenticationDeniedException(errorMessage);
         }
     }
 
     // -------------------------------------------------------------------------
-    // PUBLIC METHODS
+    // PACKAGE METHODS
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns a parser which validates JWTs using the specified public signing key.
+     *
+     * @param signingKey Base64 encoded public signing key to use to validate tokens.
+     * @return A parser which validates JWTs using the specified public signing key.
+     */
+    static JwtParser createJwtParser(final String signingKey) {
+        return createJwtParser(signingKey, ClaimDecoding.FULL);
+    }
+
+    /**
+     * Returns a parser which validates JWTs using the specified public signing key.
+     *
+     * @param signingKey Base64 encoded public signing key to use to validate tokens.
+     * @param claimDecoding How to decode the claims of each token.
+     * @return A parser which validates JWTs using the specified public signing key.
+     */
+    static JwtParser createJwtParser(final String signingKey, final ClaimDecoding claimDecoding) {
+        final X509EncodedKeySpec spec = new X509EncodedKeySpec(Decoders.BASE64.decode(signingKey));
+        PublicKey key = null;
+        try {
+            key = KeyFactory.getInstance("RSA").generatePublic(spec);
+        } catch (Exception ex) {
+            logger.error("Could not process public key", ex);
+        }
+        return createParserBuilder(claimDecoding).verifyWith(key).build();
+    }
+
+    /**
+     * Returns a parser which validates JWTs using the keys supplied by the locator.
+     *
+     * @param keyLocator Locates the key to validate each token with.
+     * @return A parser which validates JWTs using the keys supplied by the locator.
+     */
+    static JwtParser createJwtParser(final Locator<Key> keyLocator) {
+        return createJwtParser(keyLocator, ClaimDecoding.FULL);
+    }
+
+    /**
+     * Returns a parser which validates JWTs using the keys supplied by the locator.
+     *
+     * @param keyLocator Locates the key to validate each token with.
+     * @param claimDecoding How to decode the claims of each token.
+     * @return A parser which validates JWTs using the keys supplied by the locator.
+     */
+    static JwtParser createJwtParser(
+            final Locator<Key> keyLocator, final ClaimDecoding claimDecoding) {
+        return createParserBuilder(claimDecoding).keyLocator(keyLocator).build();
+    }
+
     // -------------------------------------------------------------------------
     // PRIVATE METHODS
     // -------------------------------------------------------------------------
@@ -174,16 +310,73 @@ public class JwtAuthenticator<P extends Principal> extends ExternalAuthenticator
         return result;
     }
 
+    /**
+     * Returns a parser builder which decodes claims as specified.
+     *
+     * @param claimDecoding How to decode the claims of each token.
+     * @return A parser builder which decodes claims as specified.
+     */
+    private static JwtParserBuilder createParserBuilder(final ClaimDecoding claimDecoding) {
+        final JwtParserBuilder builder = Jwts.parser();
+        if (claimDecoding == ClaimDecoding.STREAMING) {
+            builder.json(
+                    new StreamingClaimsDeserializer(
+                            STREAMING_RETAINED_CLAIMS, STREAMING_LAZY_CLAIMS));
+        }
+        return builder;
+    }
+
+    /**
+     * Creates the user described by the supplied claims. If the groups or roles were captured as
+     * raw JSON (see {@link ClaimDecoding#STREAMING}) they are only read when first requested.
+     *
+     * @param claims The claims associated with the user.
+     * @return The user described by the claims.
+     * @throws IllegalArgumentException If the claims do not describe a valid user.
+     */
+    private InternalUser createUser(final Claims claims) throws IllegalArgumentException {
+        final String username = extractClaimsValue(CLAIM_FIELD_USERNAME, claims);
+        final String firstname = extractClaimsValue(CLAIM_FIELD_FIRSTNAME, claims);
+        final String lastname = extractClaimsValue(CLAIM_FIELD_LASTNAME, claims);
+        final Optional<String> email =
+                Optional.ofNullable(claims.get(CLAIM_FIELD_EMAIL, String.class));
+        final Optional<String> logoutUrl =
+                Optional.of(claims.getIssuer() + "/protocol/openid-connect/logout");
+
+        final boolean lazy =
+                STREAMING_LAZY_CLAIMS.stream().anyMatch(c -> claims.get(c) instanceof RawJson);
+        if (lazy) {
+            return new LazyInternalUser(
+                    username,
+                    firstname,
+                    lastname,
+                    email,
+                    () -> getGroups(claims),
+                    action -> forEachRole(claims, action),
+                    logoutUrl);
+        }
+
+        return ImmutableInternalUser.builder()
+                .username(username)
+                .firstname(firstname)
+                .lastname(lastname)
+                .email(email)
+                .groups(getGroups(claims))
+                .roles(getRoles(claims))
+                .logoutUrl(logoutUrl)
+                .build();
+    }
+
     /**
      * Returns the user's groups from the {@value #CLAIM_FIELD_GROUPS} claim.
      *
      * @param claims The claims associated with the user.
      * @return The user's groups from the {@value #CLAIM_FIELD_GROUPS} claim.
      */
-    private ImmutableList<String> getGroups(final Claims claims) {
-        @SuppressWarnings("unchecked")
-        final List<String> groups = claims.get(CLAIM_FIELD_GROUPS, List.class);
-        return groups == null ? ImmutableList.of() : ImmutableList.copyOf(groups);
+    private static ImmutableSet<String> getGroups(final Claims claims) {
+        final ImmutableSet.Builder<String> groups = ImmutableSet.builder();
+        forEachString(claims.get(CLAIM_FIELD_GROUPS), groups::add);
+        return groups.build();
     }
 
     /**
@@ -195,43 +388,89 @@ public class JwtAuthenticator<P extends Principal> extends ExternalAuthenticator
      *   <li>Within the {@value #CLAIM_FIELD_RESOURCE_ACCESS} claim.
      * </ol>
      *
-     * >
+     * @param claims The claims associated with the user.
+     * @return The user's roles from the {@value #CLAIM_FIELD_ROLES} claims.
+     */
+    private static ImmutableSet<String> getRoles(final Claims claims) {
+        final ImmutableSet.Builder<String> roles = ImmutableSet.builder();
+        forEachRole(claims, roles::add);
+        return roles.build();
+    }
+
+    /**
+     * Performs the action for each of the user's roles, as returned by {@link #getRoles(Claims)}.
+     * Roles present in more than one claim are supplied more than once.
      *
      * @param claims The claims associated with the user.
-     * @return The user's groups from the {@value #CLAIM_FIELD_GROUPS} claim.
+     * @param roles The action to perform for each role.
      */
-    private ImmutableSet<String> getRoles(final Claims claims) {
-        @SuppressWarnings("unchecked")
-        final List<String> directRoles = claims.get(CLAIM_FIELD_ROLES, List.class);
-        final Set<String> roles = Sets.newHashSet();
-        Optional.ofNullable(directRoles).ifPresent(roles::addAll);
+    private static void forEachRole(final Claims claims, final Consumer<String> roles) {
+        forEachString(claims.get(CLAIM_FIELD_ROLES), roles);
 
         /* Keycloak nested roles under other claims. Include them as well for backwards
          * compatibility of this library.
          */
 
-        @SuppressWarnings("unchecked")
-        final Map<String, List<String>> realmRoles =
-                claims.get(CLAIM_FIELD_REALM_ACCESS, Map.class);
-        Optional.ofNullable(realmRoles).map(this::getRolesFrom).ifPresent(roles::addAll);
-
-        @SuppressWarnings("unchecked")
-        final Map<String, Map<String, List<String>>> clientRoles =
-                claims.get(CLAIM_FIELD_RESOURCE_ACCESS, Map.class);
-        Optional.ofNullable(clientRoles).orElse(ImmutableMap.of()).values().stream()
-                .map(this::getRolesFrom)
-                .forEach(roles::addAll);
+        final Object realmAccess = claims.get(CLAIM_FIELD_REALM_ACCESS);
+        if (realmAccess instanceof RawJson) {
+            ((RawJson) realmAccess).forEachMemberStringElement(CLAIM_FIELD_ROLES, roles);
+        } else {
+            forEachRoleIn(realmAccess, roles);
+        }
 
-        return ImmutableSet.copyOf(roles);
+        final Object resourceAccess = claims.get(CLAIM_FIELD_RESOURCE_ACCESS);
+        if (resourceAccess instanceof RawJson) {
+            ((RawJson) resourceAccess).forEachNestedMemberStringElement(CLAIM_FIELD_ROLES, roles);
+        } else if (resourceAccess instanceof Map) {
+            ((Map<?, ?>) resourceAccess).values().forEach(c -> forEachRoleIn(c, roles));
+        }
     }
 
     /**
-     * Returns the user's roles from the {@value #CLAIM_FIELD_ROLES} field.
+     * Performs the action for each of the user's roles in the {@value #CLAIM_FIELD_ROLES} field of
+     * the container.
      *
      * @param container The container which contains the roles claim.
-     * @return The user's roles from the {@value #CLAIM_FIELD_ROLES} field.
+     * @param roles The action to perform for each role.
+     */
+    private static void forEachRoleIn(final Object container, final Consumer<String> roles) {
+        if (container instanceof Map) {
+            forEachString(((Map<?, ?>) container).get(CLAIM_FIELD_ROLES), roles);
+        }
+    }
+
+    /**
+     * Performs the action for each string within the supplied claim value. Any other elements are
+     * ignored.
+     *
+     * @param value A deserialized JSON array, or the {@link RawJson} of one.
+     * @param strings The action to perform for each string.
      */
-    private ImmutableList<String> getRolesFrom(final Map<String, List<String>> container) {
-        return ImmutableList.copyOf(container.getOrDefault(CLAIM_FIELD_ROLES, ImmutableList.of()));
+    private static void forEachString(final Object value, final Consumer<String> strings) {
+        if (value instanceof RawJson) {
+            ((RawJson) value).forEachStringElement(strings);
+        } else if (value instanceof Iterable) {
+            for (final Object element : (Iterable<?>) value) {
+                if (element instanceof String) {
+                    strings.accept((String) element);
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** How the claims of each token are decoded. */
+    public enum ClaimDecoding {
+        /** Deserialize every claim in the token. */
+        FULL,
+
+        /**
+         * Deserialize only the claims used to build the user in a single streaming pass. Groups
+         * and roles are only read when first requested.
+         */
+        STREAMING
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An {@link InternalUser} whose groups and roles are only materialized when first requested. Used
+ * to avoid building large group/role sets which are never read.
+ *
+ * <p>The bitset of the user's roles is computed from the role source directly, so authorizing the
+ * user against registered roles does not materialize the roles.
+ *
+ * <p>Equality, hashing and string conversion are inherited from {@link InternalUser}, so this is
+ * interchangeable with an {@link ImmutableInternalUser} with the same attributes.
+ *
+ * @author brightSPARK Labs
+ */
+final class LazyInternalUser extends InternalUser {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** The user's username. */
+    private final String username;
+
+    /** The user's firstname. */
+    private final String firstname;
+
+    /** The user's lastname. */
+    private final String lastname;
+
+    /** The user's email. */
+    private final Optional<String> email;
+
+    /** Supplies the user's group memberships, computing them at most once. */
+    private final Supplier<ImmutableSet<String>> groups;
+
+    /** Supplies each of the user's roles to an action, possibly more than once per role. */
+    private final Consumer<Consumer<String>> roleSource;
+
+    /** The user's roles, or {@code null} if they have not been materialized. */
+    private volatile ImmutableSet<String> roles;
+
+    /** The URL for logging out the user. */
+    private final Optional<String> logoutUrl;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new user.
+     *
+     * @param username The user's username.
+     * @param firstname The user's firstname.
+     * @param lastname The user's lastname.
+     * @param email The user's email.
+     * @param groups Computes the user's group memberships. Called at most once.
+     * @param roleSource Supplies each of the user's roles to an action. Called each time the roles
+     *     are read until they are materialized.
+     * @param logoutUrl The URL for logging out the user.
+     */
+    LazyInternalUser(
+            final String username,
+            final String firstname,
+            final String lastname,
+            final Optional<String> email,
+            final Supplier<ImmutableSet<String>> groups,
+            final Consumer<Consumer<String>> roleSource,
+            final Optional<String> logoutUrl) {
+        this.username = username;
+        this.firstname = firstname;
+        this.lastname = lastname;
+        this.email = email;
+        this.groups = Suppliers.memoize(groups::get);
+        this.roleSource = roleSource;
+        this.logoutUrl = logoutUrl;
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: InternalUser
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getFirstname() {
+        return firstname;
+    }
+
+    @Override
+    public String getLastname() {
+        return lastname;
+    }
+
+    @Override
+    public Optional<String> getEmail() {
+        return email;
+    }
+
+    @Override
+    public ImmutableSet<String> getGroups() {
+        return groups.get();
+    }
+
+    @Override
+    public ImmutableSet<String> getRoles() {
+        ImmutableSet<String> materialized = roles;
+        if (materialized == null) {
+            // Benign race: concurrent callers materialize equal sets.
+            final ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+            roleSource.accept(builder::add);
+            materialized = builder.build();
+            roles = materialized;
+        }
+        return materialized;
+    }
+
+    @Override
+    public Optional<String> getLogoutUrl() {
+        return logoutUrl;
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    @Override
+    void forEachRole(final Consumer<String> action) {
+        final ImmutableSet<String> materialized = roles;
+        if (materialized == null) {
+            roleSource.accept(action);
+        } else {
+            materialized.forEach(action);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+import org.slf4j.MDC;
+
+/**
+ * An {@link Executor} which runs each task with the SLF4J MDC (Mapped Diagnostic Context) of the
+ * thread which submitted it, restoring the executing thread's own MDC afterwards.
+ *
+ * <p>The MDC is bound to a thread, so by default the authenticated user's username (see {@link
+ * AddUserAuthToRequestFilter}) is lost when a request continues on another thread, and a pooled
+ * thread can log with the username of a previous request. Use this to run the continuations of
+ * asynchronous resources (e.g. {@code @Suspended AsyncResponse} or {@code CompletionStage}
+ * resources). Any executor can be wrapped, including one which runs each task on a virtual thread:
+ *
+ * <pre>{@code
+ * private final Executor executor =
+ *         MdcPropagatingExecutor.wrap(Executors.newCachedThreadPool());
+ *
+ * public CompletionStage<Result> get() {
+ *     return CompletableFuture.supplyAsync(this::compute, executor);
+ * }
+ * }</pre>
+ *
+ * @author brightSPARK Labs
+ */
+public final class MdcPropagatingExecutor implements Executor {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Executor to run the tasks on. */
+    private final Executor delegate;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new executor.
+     *
+     * @param delegate Executor to run the tasks on.
+     */
+    private MdcPropagatingExecutor(final Executor delegate) {
+        this.delegate = requireNonNull(delegate);
+    }
+
+    /**
+     * Returns an executor which runs tasks on the supplied executor with the MDC of the submitting
+     * thread.
+     *
+     * @param delegate Executor to run the tasks on.
+     * @return An executor which propagates the MDC to its tasks.
+     */
+    public static Executor wrap(final Executor delegate) {
+        return delegate instanceof MdcPropagatingExecutor
+                ? delegate
+                : new MdcPropagatingExecutor(delegate);
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Executor
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void execute(final Runnable command) {
+        delegate.execute(propagate(command));
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns a task which runs the supplied task with the MDC of the current thread. Use this
+     * where tasks are handed to threads other than via an {@link Executor}.
+     *
+     * @param task The task to run.
+     * @return A task which runs the supplied task with the MDC of the current thread.
+     */
+    public static Runnable propagate(final Runnable task) {
+        requireNonNull(task);
+        final Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            final Map<String, String> previous = MDC.getCopyOfContextMap();
+            setContextMap(context);
+            try {
+                task.run();
+            } finally {
+                setContextMap(previous);
+            }
+        };
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Replaces the MDC of the current thread.
+     *
+     * @param context The MDC to set, or {@code null} to clear it.
+     */
+    private static void setContextMap(final Map<String, String> context) {
+        if (context == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(context);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import java.io.IOException;
+import org.slf4j.MDC;
+
+/**
+ * A servlet {@link Filter} which removes the username from the MDC (Mapped Diagnostic Context)
+ * before and after each request is handled.
+ *
+ * <p>A thread which suspended an asynchronous request is never given its response, so the username
+ * {@link AddUserAuthToRequestFilter} added to its MDC is not removed when the response is sent.
+ * Removing it once the thread leaves the request ensures any other work the thread goes on to do
+ * (e.g. serving a request outside of Jersey) does not log with the username of the request.
+ *
+ * @author brightSPARK Labs
+ */
+final class MdcResetFilter implements Filter {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** MDC key the authenticated user's username is stored against. */
+    private final String mdcUsernameField;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new filter.
+     *
+     * @param mdcUsernameField MDC key the authenticated user's username is stored against.
+     */
+    MdcResetFilter(final String mdcUsernameField) {
+        this.mdcUsernameField = mdcUsernameField;
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Filter
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void doFilter(
+            final ServletRequest request, final ServletResponse response, final FilterChain chain)
+            throws IOException, ServletException {
+        MDC.remove(mdcUsernameField);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(mdcUsernameField);
+        }
+    }
+}
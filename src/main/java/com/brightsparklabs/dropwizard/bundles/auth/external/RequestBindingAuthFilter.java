@@ -0,0 +1,59 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import java.io.IOException;
+
+/**
+ * A {@link ContainerRequestFilter} which binds each request to the thread while its delegate
+ * authenticates it, so that any {@link ExternalAuthenticator} within the delegate (including the
+ * delegates of a chained filter) stores the {@link InternalUser} it produced against {@link
+ * ExternalAuthenticator#INTERNAL_USER_PROPERTY}.
+ *
+ * @author brightSPARK Labs
+ */
+@Priority(Priorities.AUTHENTICATION)
+final class RequestBindingAuthFilter implements ContainerRequestFilter {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** The filter which authenticates requests. */
+    private final ContainerRequestFilter delegate;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new filter.
+     *
+     * @param delegate The filter which authenticates requests.
+     */
+    RequestBindingAuthFilter(final ContainerRequestFilter delegate) {
+        this.delegate = delegate;
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: ContainerRequestFilter
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) throws IOException {
+        final ContainerRequestContext previous = ExternalAuthenticator.bindRequest(requestContext);
+        try {
+            delegate.filter(requestContext);
+        } finally {
+            ExternalAuthenticator.restoreRequest(previous);
+        }
+    }
+}
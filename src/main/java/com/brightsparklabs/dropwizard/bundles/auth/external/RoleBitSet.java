@@ -0,0 +1,130 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of roles, represented as a bitset of the ids the roles were interned with by a
+ * {@link RoleRegistry}.
+ *
+ * <p>Only roles which were registered when the bitset was created are represented. Use {@link
+ * #covers(int)} to determine whether a role's presence can be determined from the bitset.
+ *
+ * <p>Instances are shared between users with the same roles. Obtain them via {@link
+ * RoleRegistry#bitSetOf(Iterable)}.
+ *
+ * @author brightSPARK Labs
+ */
+public final class RoleBitSet {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Registry the roles were interned with. */
+    private final RoleRegistry registry;
+
+    /** Bits of the role ids, 64 per word. */
+    private final long[] words;
+
+    /** Number of roles registered when the bitset was created. Ids below this are represented. */
+    private final int coverage;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new bitset.
+     *
+     * @param registry Registry the roles were interned with.
+     * @param words Bits of the role ids, 64 per word. Not copied, so must not be modified.
+     * @param coverage Number of roles registered when the bitset was created.
+     */
+    RoleBitSet(final RoleRegistry registry, final long[] words, final int coverage) {
+        this.registry = registry;
+        this.words = words;
+        this.coverage = coverage;
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns whether the presence of the role with the specified id can be determined from this
+     * bitset. I.e. whether the role was registered before this bitset was created.
+     *
+     * @param id Id of the role.
+     * @return {@code true} if {@link #contains(int)} is accurate for the role.
+     */
+    public boolean covers(final int id) {
+        return id >= 0 && id < coverage;
+    }
+
+    /**
+     * Returns whether this bitset contains the role with the specified id.
+     *
+     * @param id Id of the role.
+     * @return {@code true} if this bitset contains the role.
+     */
+    public boolean contains(final int id) {
+        final int word = id >>> 6;
+        return id >= 0 && word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * Returns the registry the roles were interned with.
+     *
+     * @return The registry the roles were interned with.
+     */
+    public RoleRegistry getRegistry() {
+        return registry;
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of roles registered when the bitset was created.
+     *
+     * @return The number of roles registered when the bitset was created.
+     */
+    int getCoverage() {
+        return coverage;
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Object
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RoleBitSet)) {
+            return false;
+        }
+        final RoleBitSet that = (RoleBitSet) other;
+        return registry == that.registry
+                && coverage == that.coverage
+                && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(words) + coverage;
+    }
+
+    @Override
+    public String toString() {
+        return "RoleBitSet{coverage=" + coverage + ", words=" + Arrays.toString(words) + "}";
+    }
+}
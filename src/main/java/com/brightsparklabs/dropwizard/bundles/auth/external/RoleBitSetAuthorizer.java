@@ -0,0 +1,81 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import io.dropwizard.auth.Authorizer;
+import jakarta.ws.rs.container.ContainerRequestContext;
+
+/**
+ * Authorizes a user if they have the role, answering with a bitmask test against the bitset of the
+ * user's roles rather than a lookup in {@link InternalUser#getRoles()}.
+ *
+ * <p>When used with {@link ExternallyAuthenticatedAuthBundle}, the roles named in {@code
+ * RolesAllowed} annotations and in the {@code knownRoles} configuration are registered with {@link
+ * #getRoleRegistry()} at startup. Checks against any other role fall back to the role names.
+ *
+ * @author brightSPARK Labs
+ */
+public class RoleBitSetAuthorizer implements Authorizer<InternalUser> {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Registry the roles are interned with. */
+    private final RoleRegistry roleRegistry;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /** Creates a new authorizer with its own {@link RoleRegistry}. */
+    public RoleBitSetAuthorizer() {
+        this(new RoleRegistry());
+    }
+
+    /**
+     * Creates a new authorizer.
+     *
+     * @param roleRegistry Registry the roles are interned with.
+     */
+    public RoleBitSetAuthorizer(final RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Authorizer
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean authorize(
+            final InternalUser principal,
+            final String role,
+            final ContainerRequestContext requestContext) {
+        final int id = roleRegistry.getId(role);
+        if (id >= 0) {
+            final RoleBitSet roles = roleRegistry.bitSetOf(principal);
+            if (roles.covers(id)) {
+                return roles.contains(id);
+            }
+        }
+        // The role was not registered when the user's bitset was created.
+        return principal.getRoles().contains(role);
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the registry the roles are interned with.
+     *
+     * @return The registry the roles are interned with.
+     */
+    public RoleRegistry getRoleRegistry() {
+        return roleRegistry;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ws.rs.container.DynamicFeature;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.FeatureContext;
+import java.lang.reflect.AnnotatedElement;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Interns role names into dense integer ids, so that sets of roles can be represented as compact
+ * {@link RoleBitSet}s and tested with a bitmask rather than string lookups.
+ *
+ * <p>Roles are registered at startup from the {@link RolesAllowed} annotations on resources (see
+ * {@link #rolesAllowedScanner()}) and from configuration. Roles which are never registered are not
+ * represented in bitsets, so checks against them must fall back to the role names.
+ *
+ * <p>Equal bitsets are shared as flyweights between users. The users' sets of role names are not
+ * interned, so only the bitsets are shared.
+ *
+ * <p>Thread-safe.
+ *
+ * @author brightSPARK Labs
+ */
+public final class RoleRegistry {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Ids of the registered roles, keyed by role name. */
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /** Number of registered roles. Only written while holding the lock on this registry. */
+    private volatile int size = 0;
+
+    /** Shares equal bitsets, e.g. for role sets which differ only by unregistered roles. */
+    private final Interner<RoleBitSet> interner = Interners.newWeakInterner();
+
+    /**
+     * Bitsets of the users converted so far. Keyed by identity and weakly held, so entries are
+     * released with the user (e.g. when it is evicted from a token cache).
+     */
+    private final Cache<InternalUser, RoleBitSet> userBitSets =
+            Caffeine.newBuilder().weakKeys().build();
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Registers the role, assigning it the next id if it has not already been registered.
+     *
+     * @param role Name of the role.
+     * @return The id of the role.
+     */
+    public int register(final String role) {
+        final Integer existing = ids.get(role);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            final Integer id = ids.computeIfAbsent(role, r -> size);
+            if (id == size) {
+                // Publish the id before the size, so ids below the size are always visible.
+                size++;
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Registers each of the roles.
+     *
+     * @param roles Names of the roles.
+     */
+    public void registerAll(final Iterable<String> roles) {
+        roles.forEach(this::register);
+    }
+
+    /**
+     * Returns the id of the role.
+     *
+     * @param role Name of the role.
+     * @return The id of the role, or {@code -1} if the role has not been registered.
+     */
+    public int getId(final String role) {
+        final Integer id = ids.get(role);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the number of registered roles.
+     *
+     * @return The number of registered roles.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the bitset of the supplied roles. Roles which have not been registered are not
+     * represented. Bitsets are shared between callers supplying equivalent roles.
+     *
+     * @param roles Names of the roles.
+     * @return The bitset of the roles.
+     */
+    public RoleBitSet bitSetOf(final Iterable<String> roles) {
+        final BitSetBuilder builder = new BitSetBuilder();
+        roles.forEach(builder);
+        return builder.build();
+    }
+
+    /**
+     * Returns a feature which registers the roles named in the {@link RolesAllowed} annotations on
+     * each resource method and class. Register it with Jersey so the roles are registered as the
+     * resources are initialised.
+     *
+     * @return A feature which registers the roles allowed to access each resource.
+     */
+    public DynamicFeature rolesAllowedScanner() {
+        return new RolesAllowedScanner();
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the bitset of the roles supplied by the source. Avoids collecting the roles when
+     * they can be read directly, e.g. from the raw JSON of a token.
+     *
+     * @param roleSource Supplies each role to an action. Roles may be supplied more than once.
+     * @return The bitset of the roles.
+     */
+    RoleBitSet bitSetFrom(final Consumer<Consumer<String>> roleSource) {
+        final BitSetBuilder builder = new BitSetBuilder();
+        roleSource.accept(builder);
+        return builder.build();
+    }
+
+    /**
+     * Returns the bitset of the user's roles. The bitset is computed on first use and retained
+     * while the user is reachable, until more roles are registered.
+     *
+     * @param user The user.
+     * @return The bitset of the user's roles.
+     */
+    RoleBitSet bitSetOf(final InternalUser user) {
+        final RoleBitSet cached = userBitSets.getIfPresent(user);
+        if (cached != null && cached.getCoverage() == size) {
+            return cached;
+        }
+        // Benign race: concurrent callers compute the same shared bitset.
+        final RoleBitSet bitSet = bitSetFrom(user::forEachRole);
+        userBitSets.put(user, bitSet);
+        return bitSet;
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** Sets the bit of each registered role it is supplied. */
+    private class BitSetBuilder implements Consumer<String> {
+        /** Number of roles registered when the builder was created. */
+        private final int coverage = size;
+
+        /** Bits of the role ids, 64 per word. */
+        private final long[] words = new long[(coverage + Long.SIZE - 1) / Long.SIZE];
+
+        @Override
+        public void accept(final String role) {
+            final Integer id = ids.get(role);
+            if (id != null && id < coverage) {
+                words[id >>> 6] |= 1L << id;
+            }
+        }
+
+        /**
+         * Returns the shared bitset of the roles supplied so far.
+         *
+         * @return The shared bitset of the roles supplied so far.
+         */
+        private RoleBitSet build() {
+            return interner.intern(new RoleBitSet(RoleRegistry.this, words, coverage));
+        }
+    }
+
+    /** Registers the roles named in the {@link RolesAllowed} annotations on each resource. */
+    private class RolesAllowedScanner implements DynamicFeature {
+        @Override
+        public void configure(final ResourceInfo resourceInfo, final FeatureContext context) {
+            register(resourceInfo.getResourceMethod());
+            register(resourceInfo.getResourceClass());
+        }
+
+        /**
+         * Registers the roles named in the {@link RolesAllowed} annotation on the element, if any.
+         *
+         * @param element The annotated method or class.
+         */
+        private void register(final AnnotatedElement element) {
+            final RolesAllowed rolesAllowed =
+                    element == null ? null : element.getAnnotation(RolesAllowed.class);
+            if (rolesAllowed != null) {
+                registerAll(Arrays.asList(rolesAllowed.value()));
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.brightsparklabs.dropwizard.bundles.auth.external.CredentialMatcher.Presence;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import io.dropwizard.auth.AuthFilter;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link AuthFilter} which sends each request straight to the one delegate whose credentials are
+ * present in the request (e.g. a bearer token), rather than trying each delegate in turn. This
+ * avoids running (and notifying listeners of denials from) delegates which cannot authenticate the
+ * request.
+ *
+ * <p>The delegates are tried in turn, as per {@link InstrumentedChainedAuthFilter}, only if the
+ * credentials are ambiguous. I.e. if more than one delegate's credentials are present, or if it
+ * cannot be determined whether a delegate's credentials are present. Delegates whose credentials
+ * are absent are skipped. If no delegate's credentials are present, the request is rejected by the
+ * first delegate.
+ *
+ * @param <P> the type of the principal
+ * @author brightSPARK Labs
+ */
+@Priority(Priorities.AUTHENTICATION)
+public class RoutingChainedAuthFilter<P extends Principal>
+        extends InstrumentedChainedAuthFilter<P> {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Determines whether the credentials of each delegate are present, by index. */
+    private final ImmutableList<CredentialMatcher> matchers;
+
+    /** Rate of requests whose credentials were ambiguous, so delegates were tried in turn. */
+    private final Meter orderedTrial;
+
+    /** Single element arrays of each delegate index, to avoid allocating per request. */
+    private final int[][] singleDelegates;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new filter.
+     *
+     * @param delegates The filters to route to.
+     * @param matchers Determines whether the credentials of each delegate are present. Must be the
+     *     same size and order as {@code delegates}.
+     * @param timer Time taken to run the chain.
+     * @param successfulDelegate Index (within the chain) of the delegate which authenticated each
+     *     request.
+     * @param orderedTrial Rate of requests whose credentials were ambiguous, so delegates were
+     *     tried in turn.
+     * @param challengePrefix Scheme of the challenge to reject requests which no delegate rejected
+     *     with (e.g. {@code Bearer}). Typically that of the first delegate.
+     * @param realm Realm of the challenge to reject requests which no delegate rejected with.
+     */
+    public RoutingChainedAuthFilter(
+            final List<AuthFilter<?, P>> delegates,
+            final List<CredentialMatcher> matchers,
+            final Timer timer,
+            final Histogram successfulDelegate,
+            final Meter orderedTrial,
+            final String challengePrefix,
+            final String realm) {
+        super(delegates, timer, successfulDelegate, challengePrefix, realm);
+        Preconditions.checkArgument(
+                delegates.size() == matchers.size(),
+                "Expected a matcher for each of the [%s] delegates but got [%s]",
+                delegates.size(),
+                matchers.size());
+        Preconditions.checkArgument(!delegates.isEmpty(), "At least one delegate is required");
+        this.matchers = ImmutableList.copyOf(matchers);
+        this.orderedTrial = orderedTrial;
+        this.singleDelegates = new int[delegates.size()][];
+        for (int i = 0; i < delegates.size(); i++) {
+            singleDelegates[i] = new int[] {i};
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: InstrumentedChainedAuthFilter
+    // -------------------------------------------------------------------------
+
+    @Override
+    protected int[] selectDelegates(final ContainerRequestContext requestContext) {
+        int firstCandidate = -1;
+        int candidateCount = 0;
+        int[] candidates = null;
+        for (int i = 0; i < matchers.size(); i++) {
+            if (matchers.get(i).match(requestContext) == Presence.ABSENT) {
+                continue;
+            }
+            if (candidateCount == 0) {
+                firstCandidate = i;
+            } else {
+                // Only allocate when the credentials are ambiguous.
+                if (candidates == null) {
+                    candidates = new int[matchers.size()];
+                    candidates[0] = firstCandidate;
+                }
+                candidates[candidateCount] = i;
+            }
+            candidateCount++;
+        }
+
+        if (candidateCount == 0) {
+            // No credentials. Let the first delegate reject the request (and issue its challenge).
+            return singleDelegates[0];
+        }
+        if (candidateCount == 1) {
+            return singleDelegates[firstCandidate];
+        }
+        orderedTrial.mark();
+        return Arrays.copyOf(candidates, candidateCount);
+    }
+}
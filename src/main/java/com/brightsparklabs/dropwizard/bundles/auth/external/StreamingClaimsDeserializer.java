@@ -0,0 +1,332 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CharStreams;
+import io.jsonwebtoken.io.DeserializationException;
+import io.jsonwebtoken.io.Deserializer;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Deserializes JWT headers and payloads in a single streaming pass, retaining only the members
+ * which are needed.
+ *
+ * <p>Members named in {@code retained} are deserialized as normal. Members named in {@code lazy}
+ * are not deserialized. Instead their raw JSON is captured as a {@link RawJson} value so it can be
+ * read if and when required. All other members are skipped.
+ *
+ * @author brightSPARK Labs
+ */
+final class StreamingClaimsDeserializer implements Deserializer<Map<String, ?>> {
+    // -------------------------------------------------------------------------
+    // CONSTANTS
+    // -------------------------------------------------------------------------
+
+    /**
+     * JOSE header parameters (RFC 7515) which jjwt may need to verify a JWS. Always retained, as
+     * headers and payloads are deserialized by the same instance.
+     */
+    static final ImmutableSet<String> HEADER_PARAMETERS =
+            ImmutableSet.of(
+                    "alg", "typ", "cty", "kid", "crit", "jku", "jwk", "x5u", "x5c", "x5t",
+                    "x5t#S256", "zip", "b64");
+
+    /** Registered claims (RFC 7519) which jjwt validates. Always retained. */
+    static final ImmutableSet<String> REGISTERED_CLAIMS =
+            ImmutableSet.of("iss", "sub", "aud", "exp", "nbf", "iat", "jti");
+
+    // -------------------------------------------------------------------------
+    // CLASS VARIABLES
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates parsers. Thread-safe. Rejects duplicate members, as otherwise a later duplicate of a
+     * registered claim would silently override the value jjwt validates.
+     */
+    private static final JsonFactory jsonFactory =
+            JsonFactory.builder().enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION).build();
+
+    /** Deserializes retained members which are arrays or objects. Thread-safe. */
+    private static final ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
+
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Names of members to deserialize. */
+    private final ImmutableSet<String> retained;
+
+    /** Names of members whose arrays/objects should be captured as raw JSON. */
+    private final ImmutableSet<String> lazy;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new deserializer.
+     *
+     * @param retained Names of members to deserialize, in addition to {@link #HEADER_PARAMETERS}
+     *     and {@link #REGISTERED_CLAIMS}.
+     * @param lazy Names of members whose arrays/objects should be captured as raw JSON. If the
+     *     member is neither an array nor an object, it is deserialized as normal.
+     */
+    StreamingClaimsDeserializer(final Iterable<String> retained, final Iterable<String> lazy) {
+        this.retained =
+                ImmutableSet.<String>builder()
+                        .addAll(HEADER_PARAMETERS)
+                        .addAll(REGISTERED_CLAIMS)
+                        .addAll(retained)
+                        .build();
+        this.lazy = ImmutableSet.copyOf(lazy);
+    }
+
+    // -------------------------------------------------------------------------
+    // IMPLEMENTATION: Deserializer
+    // -------------------------------------------------------------------------
+
+    @Override
+    @Deprecated
+    public Map<String, ?> deserialize(final byte[] bytes) throws DeserializationException {
+        return deserialize(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Map<String, ?> deserialize(final Reader reader) throws DeserializationException {
+        try {
+            return deserialize(CharStreams.toString(reader));
+        } catch (IOException ex) {
+            throw new DeserializationException("Could not read JSON", ex);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Deserializes the retained and lazy members of the supplied JSON object.
+     *
+     * @param json The JSON object.
+     * @return The retained and lazy members of the object.
+     * @throws DeserializationException If the JSON is not a single valid object, or if it contains
+     *     duplicate members.
+     */
+    private Map<String, ?> deserialize(final String json) throws DeserializationException {
+        // Parse from a char array so lazy members can share it without copying.
+        final char[] chars = json.toCharArray();
+        final Map<String, Object> result = new LinkedHashMap<>();
+        try (JsonParser parser = jsonFactory.createParser(chars)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new DeserializationException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken token = parser.nextToken();
+                final boolean container =
+                        token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT;
+                if (container && lazy.contains(name)) {
+                    final int start = (int) parser.currentTokenLocation().getCharOffset();
+                    parser.skipChildren();
+                    final int end = (int) parser.currentTokenLocation().getCharOffset() + 1;
+                    result.put(name, new RawJson(chars, start, end));
+                } else if (retained.contains(name) || lazy.contains(name)) {
+                    final Object value = readValue(parser, token);
+                    if (value != null) {
+                        result.put(name, value);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new DeserializationException("Unexpected content after JSON object");
+            }
+        } catch (IOException ex) {
+            throw new DeserializationException("Could not parse JSON", ex);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the value at the parser's current token.
+     *
+     * @param parser The parser.
+     * @param token The current token.
+     * @return The value, or {@code null} if the value is JSON {@code null}.
+     * @throws IOException If the value could not be read.
+     */
+    private static Object readValue(final JsonParser parser, final JsonToken token)
+            throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return objectMapper.readValue(parser, Object.class);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** The raw JSON of an array or object, which has not been deserialized. */
+    static final class RawJson {
+        /** The JSON document containing the value. */
+        private final char[] source;
+
+        /** Offset of the first character of the value within {@link #source}. */
+        private final int start;
+
+        /** Offset after the last character of the value within {@link #source}. */
+        private final int end;
+
+        private RawJson(final char[] source, final int start, final int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Performs the action for each string element of this array. Any other elements are
+         * ignored.
+         *
+         * @param action The action to perform for each string.
+         */
+        void forEachStringElement(final Consumer<String> action) {
+            try (JsonParser parser = createParser()) {
+                forEachStringElement(parser, action);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Performs the action for each string element of the array in the specified member of this
+         * object. E.g. the roles in {@code {"roles": ["r1", "r2"]}}.
+         *
+         * @param member Name of the member containing the array.
+         * @param action The action to perform for each string.
+         */
+        void forEachMemberStringElement(final String member, final Consumer<String> action) {
+            try (JsonParser parser = createParser()) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    forEachMemberStringElement(parser, member, action);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Performs the action for each string element of the array in the specified member of each
+         * object within this object. E.g. the roles in {@code {"c1": {"roles": ["r1"]}, "c2":
+         * {"roles": ["r2"]}}}.
+         *
+         * @param member Name of the member containing the array within each object.
+         * @param action The action to perform for each string.
+         */
+        void forEachNestedMemberStringElement(final String member, final Consumer<String> action) {
+            try (JsonParser parser = createParser()) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        forEachMemberStringElement(parser, member, action);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(source, start, end - start);
+        }
+
+        /**
+         * Returns a parser positioned before the start of the value.
+         *
+         * @return A parser positioned before the start of the value.
+         * @throws IOException If the parser could not be created.
+         */
+        private JsonParser createParser() throws IOException {
+            return jsonFactory.createParser(source, start, end - start);
+        }
+
+        /**
+         * Performs the action for each string element of the array at the parser's next token.
+         *
+         * @param parser The parser.
+         * @param action The action to perform for each string.
+         * @throws IOException If the JSON could not be read.
+         */
+        private static void forEachStringElement(
+                final JsonParser parser, final Consumer<String> action) throws IOException {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING) {
+                    action.accept(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        /**
+         * Performs the action for each string element of the array in the specified member of the
+         * object the parser has just started, and advances the parser to the end of the object.
+         *
+         * @param parser The parser, positioned at the start of an object.
+         * @param member Name of the member containing the array.
+         * @param action The action to perform for each string.
+         * @throws IOException If the JSON could not be read.
+         */
+        private static void forEachMemberStringElement(
+                final JsonParser parser, final String member, final Consumer<String> action)
+                throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                if (member.equals(parser.currentName())) {
+                    forEachStringElement(parser, action);
+                } else {
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+}
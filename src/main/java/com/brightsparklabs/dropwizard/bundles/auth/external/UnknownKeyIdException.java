@@ -0,0 +1,29 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import io.jsonwebtoken.JwtException;
+
+/**
+ * An exception thrown by {@link JwksKeyLocator} to reject a JWS signed with a key id which is not
+ * in the key set. The key may have been added since the key set was loaded, so the JWS may be
+ * accepted once the key set is refreshed.
+ *
+ * @author brightSPARK Labs
+ */
+public class UnknownKeyIdException extends JwtException {
+
+    /**
+     * Constructs a new unknown key id exception with the specified detail message.
+     *
+     * @param message the detail message.
+     */
+    public UnknownKeyIdException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * A bounded cache of tokens which have already been verified, keyed by a SHA-256 digest of the
+ * token.
+ *
+ * <p>Entries expire after the configured maximum time-to-live, or when the token itself expires,
+ * whichever comes first.
+ *
+ * @author brightSPARK Labs
+ */
+public class VerifiedTokenCache {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Cache of users keyed by the digest of the token they were authenticated with. */
+    private final Cache<HashCode, CachedUser> cache;
+
+    /**
+     * Statistics of the cache. Hits and misses are recorded by {@link #get(String)} rather than the
+     * cache, as an entry the cache holds may already have expired.
+     */
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+
+    /** Maximum length of time an entry is retained for. */
+    private final Duration maximumTtl;
+
+    /** Clock used to determine when entries expire. */
+    private final Clock clock;
+
+    // -------------------------------------------------------------------------
+    // CONSTRUCTION
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumSize Maximum number of tokens to retain.
+     * @param maximumTtl Maximum length of time to retain a token for.
+     */
+    VerifiedTokenCache(final long maximumSize, final Duration maximumTtl) {
+        this(maximumSize, maximumTtl, Ticker.systemTicker(), Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maximumSize Maximum number of tokens to retain.
+     * @param maximumTtl Maximum length of time to retain a token for.
+     * @param ticker Ticker used by the cache to measure elapsed time.
+     * @param clock Clock used to compare against token expiry times.
+     */
+    VerifiedTokenCache(
+            final long maximumSize,
+            final Duration maximumTtl,
+            final Ticker ticker,
+            final Clock clock) {
+        this.maximumTtl = maximumTtl;
+        this.clock = clock;
+        this.cache =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfter(new TokenExpiry())
+                        .ticker(ticker)
+                        .recordStats(() -> statsCounter)
+                        .build();
+    }
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the hit/miss/eviction statistics of the cache.
+     *
+     * @return The hit/miss/eviction statistics of the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the approximate number of tokens currently in the cache.
+     *
+     * @return The approximate number of tokens currently in the cache.
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Registers gauges reporting the size and hit/miss/eviction counts of the cache.
+     *
+     * @param metricRegistry Registry to register the gauges with.
+     * @param name Prefix for the names of the gauges.
+     * @throws IllegalArgumentException If a metric with the same name as one of the gauges is
+     *     already registered (e.g. by the cache of another filter).
+     */
+    public void registerGauges(final MetricRegistry metricRegistry, final String name) {
+        metricRegistry.register(
+                MetricRegistry.name(name, "hits"), (Gauge<Long>) () -> stats().hitCount());
+        metricRegistry.register(
+                MetricRegistry.name(name, "misses"), (Gauge<Long>) () -> stats().missCount());
+        metricRegistry.register(
+                MetricRegistry.name(name, "evictions"),
+                (Gauge<Long>) () -> stats().evictionCount());
+        metricRegistry.register(MetricRegistry.name(name, "size"), (Gauge<Long>) this::size);
+    }
+
+    // -------------------------------------------------------------------------
+    // PACKAGE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the user previously authenticated with the supplied token.
+     *
+     * @param token The token to look up.
+     * @return The user previously authenticated with the token, or {@link Optional#empty()} if the
+     *     token has not been verified or has since expired.
+     */
+    Optional<InternalUser> get(final String token) {
+        final HashCode key = digest(token);
+        // Reading via the map view does not record a hit, so a stale entry is counted as a miss.
+        final CachedUser cachedUser = cache.asMap().get(key);
+        if (cachedUser == null) {
+            statsCounter.recordMisses(1);
+            return Optional.empty();
+        }
+        if (!cachedUser.expiresAt.isAfter(clock.instant())) {
+            cache.asMap().remove(key, cachedUser);
+            statsCounter.recordMisses(1);
+            return Optional.empty();
+        }
+        statsCounter.recordHits(1);
+        return Optional.of(cachedUser.user);
+    }
+
+    /**
+     * Records that the supplied token has been verified.
+     *
+     * @param token The verified token.
+     * @param user The user the token was authenticated as.
+     * @param tokenExpiry When the token expires, if it has an expiry.
+     */
+    void put(final String token, final InternalUser user, final Optional<Instant> tokenExpiry) {
+        final Instant maximumExpiry = clock.instant().plus(maximumTtl);
+        final Instant expiresAt =
+                tokenExpiry.filter(e -> e.isBefore(maximumExpiry)).orElse(maximumExpiry);
+        cache.put(digest(token), new CachedUser(user, expiresAt));
+    }
+
+    /**
+     * Discards every cached token, so each is verified again on its next use. E.g. when the keys
+     * tokens are verified with change.
+     */
+    void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // -------------------------------------------------------------------------
+    // PRIVATE METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the SHA-256 digest of a token.
+     *
+     * @param token The token to digest.
+     * @return The SHA-256 digest of the token.
+     */
+    private static HashCode digest(final String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+
+    // -------------------------------------------------------------------------
+    // INNER CLASSES
+    // -------------------------------------------------------------------------
+
+    /** A cached user along with when the cache entry must expire. */
+    private static class CachedUser {
+        /** The authenticated user. */
+        private final InternalUser user;
+
+        /** When the entry expires. */
+        private final Instant expiresAt;
+
+        private CachedUser(final InternalUser user, final Instant expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /** Expires entries at the time recorded against them when they were cached. */
+    private class TokenExpiry implements Expiry<HashCode, CachedUser> {
+        @Override
+        public long expireAfterCreate(
+                final HashCode key, final CachedUser value, final long currentTime) {
+            final Duration remaining = Duration.between(clock.instant(), value.expiresAt);
+            return remaining.isNegative() ? 0 : remaining.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(
+                final HashCode key,
+                final CachedUser value,
+                final long currentTime,
+                final long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(
+                final HashCode key,
+                final CachedUser value,
+                final long currentTime,
+                final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
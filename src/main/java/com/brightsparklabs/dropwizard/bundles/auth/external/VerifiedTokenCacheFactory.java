@@ -0,0 +1,51 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for a {@link VerifiedTokenCache}.
+ *
+ * <p>This will be created by Dropwizard + Jackson.
+ *
+ * @author brightSPARK Labs
+ */
+public class VerifiedTokenCacheFactory {
+    // -------------------------------------------------------------------------
+    // INSTANCE VARIABLES
+    // -------------------------------------------------------------------------
+
+    /** Maximum number of verified tokens to retain. Default: 10,000. */
+    @Min(1) @JsonProperty private long maximumSize = 10_000;
+
+    /**
+     * Maximum length of time to retain a verified token for. Tokens are always evicted once they
+     * expire, even if this has not elapsed. Default: 5 minutes.
+     */
+    @NotNull @MinDuration(value = 1, unit = TimeUnit.SECONDS) @JsonProperty
+    private Duration expireAfterWrite = Duration.minutes(5);
+
+    // -------------------------------------------------------------------------
+    // PUBLIC METHODS
+    // -------------------------------------------------------------------------
+
+    /**
+     * Builds a cache using this configuration.
+     *
+     * @return A cache using this configuration.
+     */
+    public VerifiedTokenCache build() {
+        return new VerifiedTokenCache(maximumSize, expireAfterWrite.toJavaDuration());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import jakarta.ws.rs.core.SecurityContext
+import org.glassfish.jersey.internal.MapPropertiesDelegate
+import org.glassfish.jersey.server.ContainerRequest
+import org.glassfish.jersey.server.ResourceConfig
+import org.slf4j.MDC
+import spock.lang.Specification
+
+import java.security.Principal
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Unit tests for {@link AddUserAuthToRequestFilter} and {@link MdcPropagatingExecutor}.
+ *
+ * @author brightSPARK Labs
+ */
+class AddUserAuthToRequestFilterTest extends Specification {
+
+    static final String MDC_FIELD = ExternallyAuthenticatedAuthFilterFactory.DEFAULT_MDC_USERNAME_FIELD
+
+    final PrincipalConverter principalConverter = Mock(PrincipalConverter)
+
+    final AddUserAuthToRequestFilter<InternalUser> filter =
+            new AddUserAuthToRequestFilter<>(principalConverter, MDC_FIELD)
+
+    def cleanup() {
+        MDC.clear()
+    }
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "user stored by the authenticator is used without converting the principal"() {
+        given:
+        def principal = { "custom" } as Principal
+
+        when:
+        filter.filter(createRequest(principal, createUser("test.user")))
+
+        then:
+        MDC.get(MDC_FIELD) == "test.user"
+        0 * principalConverter._
+    }
+
+    def "principal is converted if the authenticator did not store a user"() {
+        given:
+        def principal = { "custom" } as Principal
+
+        when:
+        filter.filter(createRequest(principal, null))
+
+        then:
+        1 * principalConverter.convertToInternalUser(principal) >> Optional.of(createUser("converted.user"))
+        MDC.get(MDC_FIELD) == "converted.user"
+    }
+
+    def "username left by a previous request on the thread is removed"() {
+        given:
+        MDC.put(MDC_FIELD, "previous.user")
+
+        when:
+        filter.filter(createRequest(null))
+
+        then:
+        MDC.get(MDC_FIELD) == null
+    }
+
+    def "identity does not bleed between concurrent requests continued asynchronously"() {
+        given:
+        ExecutorService requestThreads = Executors.newFixedThreadPool(8)
+        ExecutorService continuationThreads = Executors.newFixedThreadPool(4)
+        def continuations = MdcPropagatingExecutor.wrap(continuationThreads)
+        AtomicInteger mismatches = new AtomicInteger()
+        int requestCount = 20_000
+
+        when: 'requests (every fifth unauthenticated) are filtered then continued on another pool'
+        def futures = (0..<requestCount).collect { i ->
+            final String expected = i % 5 == 0 ? null : "user-${i}".toString()
+            CompletableFuture
+                    .supplyAsync({
+                        filter.filter(createRequest(expected == null ? null : createUser(expected)))
+                        if (MDC.get(MDC_FIELD) != expected) {
+                            mismatches.incrementAndGet()
+                        }
+                        // Resume the request on a continuation thread, as an async resource would.
+                        return CompletableFuture.supplyAsync({
+                            final String onContinuation = MDC.get(MDC_FIELD)
+                            filter.filter(null, null)
+                            return onContinuation
+                        }, continuations)
+                    }, requestThreads)
+                    .thenCompose({ it })
+                    .thenAccept({ onContinuation ->
+                        if (onContinuation != expected) {
+                            mismatches.incrementAndGet()
+                        }
+                    })
+        }
+        CompletableFuture.allOf(futures as CompletableFuture[]).get(60, TimeUnit.SECONDS)
+
+        and: 'the continuation threads are left with their own (empty) MDC'
+        def leftovers = (0..<16).collect {
+            CompletableFuture.supplyAsync({ MDC.get(MDC_FIELD) }, continuationThreads)
+        }*.get(10, TimeUnit.SECONDS)
+
+        then:
+        mismatches.get() == 0
+        leftovers.every { it == null }
+
+        cleanup:
+        requestThreads.shutdownNow()
+        continuationThreads.shutdownNow()
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param username Username of the user.
+     * @return A new user.
+     */
+    InternalUser createUser(String username) {
+        return ImmutableInternalUser.builder()
+                .username(username)
+                .firstname("Test")
+                .lastname("User")
+                .build()
+    }
+
+    /**
+     * @param user The authenticated user, or null if unauthenticated.
+     * @return A new request authenticated as the user, as stored by {@link ExternalAuthenticator}.
+     */
+    ContainerRequest createRequest(InternalUser user) {
+        return createRequest(user, user)
+    }
+
+    /**
+     * @param principal The authenticated principal, or null if unauthenticated.
+     * @param authenticatedUser The user stored against the request by the authenticator, or null
+     *     if none was stored.
+     * @return A new request authenticated as the principal.
+     */
+    ContainerRequest createRequest(Principal principal, InternalUser authenticatedUser) {
+        def securityContext = [
+            getUserPrincipal       : { principal },
+            isUserInRole           : { String role -> false },
+            isSecure               : { true },
+            getAuthenticationScheme: { SecurityContext.BASIC_AUTH },
+        ] as SecurityContext
+        def request = new ContainerRequest(
+                URI.create("http://localhost/"),
+                URI.create("http://localhost/resource"),
+                "GET",
+                securityContext,
+                new MapPropertiesDelegate(),
+                new ResourceConfig())
+        if (authenticatedUser != null) {
+            request.setProperty(ExternalAuthenticator.INTERNAL_USER_PROPERTY, authenticatedUser)
+        }
+        return request
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.codahale.metrics.MetricRegistry
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.brightsparklabs.dropwizard.bundles.auth.external.AsyncAuthenticationEventDispatcher.OverflowPolicy.*
+
+/**
+ * Unit tests for {@link AsyncAuthenticationEventDispatcher}.
+ *
+ * @author brightSPARK Labs
+ */
+class AsyncAuthenticationEventDispatcherTest extends Specification {
+
+    final MetricRegistry metricRegistry = new MetricRegistry()
+
+    final PollingConditions conditions = new PollingConditions(timeout: 5)
+
+    /** Batches received by the listener. */
+    final List<List<AuthenticationEvent>> batches = new CopyOnWriteArrayList<>()
+
+    /** Released to allow the listener to process the batches it receives. */
+    final CountDownLatch release = new CountDownLatch(1)
+
+    final AuthenticationEventListener listener = new AuthenticationEventListener() {
+        @Override
+        void onAuthenticationEvents(List<AuthenticationEvent> events) {
+            batches.add(events)
+            release.await()
+        }
+    }
+
+    AsyncAuthenticationEventDispatcher dispatcher
+
+    def cleanup() {
+        release.countDown()
+        dispatcher?.stop()
+    }
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "delivers events in batches and drains the queue on stop"() {
+        given:
+        dispatcher = createDispatcher(100, 3, DROP)
+        dispatcher.start()
+
+        when: 'the listener is busy with the first event'
+        dispatcher.onAuthenticationSuccess(createUser("user0"))
+        conditions.eventually { assert batches.size() == 1 }
+        (1..7).each { dispatcher.onAuthenticationSuccess(createUser("user${it}")) }
+
+        then: 'further events are queued without blocking'
+        dispatcher.queueDepth == 7
+        metricRegistry.gauges[AuthenticationMetrics.name("jwt", "events", "queue-depth")].value == 7
+
+        when:
+        release.countDown()
+        dispatcher.stop()
+
+        then: 'queued events are delivered in order, in batches of at most 3'
+        batches*.size() == [1, 3, 3, 1]
+        batches.flatten()*.user*.get()*.username == (0..7).collect { "user${it}" }
+        dispatcher.queueDepth == 0
+    }
+
+    def "overflow policy #policy"() {
+        given:
+        dispatcher = createDispatcher(2, 10, policy)
+        dispatcher.start()
+        dispatcher.onAuthenticationSuccess(createUser("user0"))
+        conditions.eventually { assert batches.size() == 1 }
+
+        when: 'more events occur than can be queued'
+        (1..6).each { dispatcher.onAuthenticationSuccess(createUser("user${it}")) }
+        release.countDown()
+        dispatcher.stop()
+
+        then:
+        dispatcher.droppedCount == expectedDropped
+        metricRegistry.meter(AuthenticationMetrics.name("jwt", "events", "dropped")).count == expectedDropped
+        batches.flatten()*.user*.get()*.username == expectedUsernames
+
+        where:
+        policy | expectedDropped | expectedUsernames
+        DROP   | 4               | ["user0", "user1", "user2"]
+        SAMPLE | 4               | ["user0", "user4", "user6"]
+    }
+
+    def "overflow policy BLOCK waits for room in the queue"() {
+        given:
+        dispatcher = createDispatcher(1, 10, BLOCK)
+        dispatcher.start()
+        dispatcher.onAuthenticationSuccess(createUser("user0"))
+        conditions.eventually { assert batches.size() == 1 }
+        dispatcher.onAuthenticationSuccess(createUser("user1"))
+
+        when: 'an event occurs while the queue is full'
+        Thread producer = Thread.start { dispatcher.onAuthenticationSuccess(createUser("user2")) }
+        Thread.sleep(200)
+
+        then: 'the caller is blocked'
+        producer.alive
+
+        when:
+        release.countDown()
+        producer.join(5000)
+        dispatcher.stop()
+
+        then:
+        !producer.alive
+        dispatcher.droppedCount == 0
+        batches.flatten()*.user*.get()*.username == ["user0", "user1", "user2"]
+    }
+
+    def "events dispatched while stopping are all delivered"() {
+        given:
+        def delivered = new AtomicInteger()
+        def counting = new AuthenticationEventListener() {
+            @Override
+            void onAuthenticationEvents(List<AuthenticationEvent> events) {
+                delivered.addAndGet(events.size())
+            }
+        }
+        def dispatched = new AtomicInteger()
+        def user = createUser("user0")
+
+        when: 'producers keep dispatching while the dispatcher is repeatedly started and stopped'
+        100.times {
+            dispatcher = new AsyncAuthenticationEventDispatcher(
+                    [counting], 1_000, 10, BLOCK, 1, Duration.ofSeconds(5), new MetricRegistry(), "jwt")
+            dispatcher.start()
+            def stopping = new AtomicBoolean()
+            def producers = (1..4).collect {
+                Thread.start {
+                    while (!stopping.get()) {
+                        dispatcher.onAuthenticationSuccess(user)
+                        dispatched.incrementAndGet()
+                    }
+                }
+            }
+            Thread.sleep(1)
+            dispatcher.stop()
+            stopping.set(true)
+            producers*.join(5000)
+            assert dispatcher.queueDepth == 0
+        }
+
+        then: 'every event was delivered, either by the worker, the final drain, or synchronously'
+        delivered.get() == dispatched.get()
+        dispatcher.droppedCount == 0
+    }
+
+    def "listener failures do not prevent delivery to other listeners"() {
+        given:
+        def failing = Mock(AuthenticationEventListener)
+        def delegate = Mock(AuthenticationEventListener)
+        dispatcher = new AsyncAuthenticationEventDispatcher(
+                [failing, delegate], 10, 10, DROP, 1, Duration.ofSeconds(5), metricRegistry, "jwt")
+        dispatcher.start()
+        def exception = new AuthenticationDeniedException("denied")
+
+        when:
+        dispatcher.onAuthenticationDenied(exception)
+        dispatcher.stop()
+
+        then:
+        1 * failing.onAuthenticationEvents(_) >> { throw new IllegalStateException("boom") }
+        1 * delegate.onAuthenticationEvents({ it*.deniedException*.get() == [exception] })
+    }
+
+    def "events are delivered synchronously when not started"() {
+        given:
+        def delegate = Mock(AuthenticationEventListener)
+        dispatcher = new AsyncAuthenticationEventDispatcher(
+                [delegate], 10, 10, DROP, 1, Duration.ofSeconds(5), metricRegistry, "jwt")
+        def user = createUser("user0")
+
+        when:
+        dispatcher.onAuthenticationSuccess(user)
+
+        then:
+        1 * delegate.onAuthenticationEvents({ it*.user*.get() == [user] })
+        dispatcher.queueDepth == 0
+    }
+
+    def "events are delivered synchronously once a listener error kills the worker"() {
+        given:
+        def delivered = new CopyOnWriteArrayList<String>()
+        def listener = new AuthenticationEventListener() {
+            @Override
+            void onAuthenticationEvents(List<AuthenticationEvent> events) {
+                if (events*.user*.get()*.username.contains("fatal")) {
+                    throw new AssertionError("fatal")
+                }
+                delivered.addAll(events*.user*.get()*.username)
+            }
+        }
+        dispatcher = new AsyncAuthenticationEventDispatcher(
+                [listener], 1, 10, BLOCK, 1, Duration.ofSeconds(5), metricRegistry, "jwt")
+        dispatcher.start()
+
+        when: 'the listener throws an error on the worker'
+        dispatcher.onAuthenticationSuccess(createUser("fatal"))
+        conditions.eventually { assert !dispatcher.worker.alive }
+
+        and: 'more events occur than can be queued'
+        def producer = Thread.start {
+            (1..3).each { dispatcher.onAuthenticationSuccess(createUser("user${it}")) }
+        }
+        producer.join(5000)
+
+        then: 'callers are not blocked and events are not stranded in the queue'
+        !producer.alive
+        delivered == ["user1", "user2", "user3"]
+        dispatcher.queueDepth == 0
+    }
+
+    def "metrics are recorded against the metrics name of each dispatcher"() {
+        when:
+        def first = createDispatcher(10, 10, DROP)
+        new AsyncAuthenticationEventDispatcher(
+                [listener], 5, 10, DROP, 1, Duration.ofSeconds(5), metricRegistry, "partner")
+
+        then:
+        metricRegistry.gauges.keySet().containsAll([
+            AuthenticationMetrics.name("jwt", "events", "queue-depth"),
+            AuthenticationMetrics.name("partner", "events", "queue-depth"),
+        ])
+        metricRegistry.meters.keySet().containsAll([
+            AuthenticationMetrics.name("jwt", "events", "dropped"),
+            AuthenticationMetrics.name("partner", "events", "dropped"),
+        ])
+
+        when: 'a dispatcher reuses a metrics name'
+        createDispatcher(10, 10, DROP)
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param capacity Maximum number of events to queue.
+     * @param batchSize Maximum number of events to deliver in a single batch.
+     * @param policy What to do with events which occur while the queue is full.
+     * @return A new dispatcher delivering to {@link #listener}, retaining 1 in 2 overflowing events
+     *     under {@code SAMPLE}, recording metrics against {@code jwt}.
+     */
+    AsyncAuthenticationEventDispatcher createDispatcher(int capacity, int batchSize,
+            AsyncAuthenticationEventDispatcher.OverflowPolicy policy) {
+        return new AsyncAuthenticationEventDispatcher(
+                [listener], capacity, batchSize, policy, 2, Duration.ofSeconds(5), metricRegistry, "jwt")
+    }
+
+    /**
+     * @param username Username of the user.
+     * @return A new user with the specified username.
+     */
+    InternalUser createUser(String username) {
+        return ImmutableInternalUser.builder()
+                .username(username)
+                .firstname("Test")
+                .lastname("User")
+                .build()
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import io.dropwizard.auth.Auth
+import io.dropwizard.core.setup.Environment
+import io.dropwizard.jackson.Jackson
+import jakarta.servlet.DispatcherType
+import jakarta.servlet.Filter
+import jakarta.servlet.FilterChain
+import jakarta.servlet.ServletRequest
+import jakarta.servlet.ServletResponse
+import jakarta.ws.rs.GET
+import jakarta.ws.rs.Path
+import jakarta.ws.rs.container.AsyncResponse
+import jakarta.ws.rs.container.Suspended
+import jakarta.ws.rs.core.HttpHeaders
+import org.eclipse.jetty.server.Request
+import org.eclipse.jetty.server.Server
+import org.eclipse.jetty.server.ServerConnector
+import org.eclipse.jetty.servlet.ServletHolder
+import org.eclipse.jetty.util.thread.QueuedThreadPool
+import org.glassfish.jersey.servlet.ServletContainer
+import org.slf4j.MDC
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+import java.security.KeyPairGenerator
+import java.security.Principal
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Tests {@link ExternallyAuthenticatedAuthBundle} by sending requests through Jersey running in
+ * Jetty, so that the filters are injected and ordered as they would be in an application.
+ *
+ * @author brightSPARK Labs
+ */
+class ExternallyAuthenticatedAuthBundleIntegrationTest extends Specification {
+
+    static final String MDC_FIELD = ExternallyAuthenticatedAuthFilterFactory.DEFAULT_MDC_USERNAME_FIELD
+
+    final Environment environment = new Environment("test")
+
+    final HttpClient client = HttpClient.newHttpClient()
+
+    final String signingKey = createSigningKey()
+
+    /** Continues asynchronous requests. */
+    final ExecutorService continuationThreads = Executors.newSingleThreadExecutor()
+
+    /** Username in the MDC of the request thread as each request was authenticated. */
+    final List<String> usernamesInMdcDuringAuthentication = Collections.synchronizedList([])
+
+    /** Username in the MDC of the request thread as it left each request. */
+    final List<String> usernamesInMdcAfterRequest = Collections.synchronizedList([])
+
+    /** Name of the user principal of the Jetty request as the request thread left each request. */
+    final List<String> jettyUserPrincipals = Collections.synchronizedList([])
+
+    final AuthenticationEventListener listener = new AuthenticationEventListener() {
+        @Override
+        void onAuthenticationSuccess(InternalUser authenticatedUser) {
+            usernamesInMdcDuringAuthentication << MDC.get(MDC_FIELD)
+        }
+    }
+
+    Server server
+
+    def cleanup() {
+        server?.stop()
+        continuationThreads.shutdownNow()
+    }
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "flood protection on the delegate of a chained filter rate limits the client"() {
+        given:
+        start("""{
+            "method": "chained",
+            "delegates": [{
+                "method": "jwt",
+                "signingKey": "${signingKey}",
+                "floodProtection": {"failureBurst": 1, "failuresPerSecond": 0.001}
+            }]
+        }""")
+
+        when: 'the client sends two distinct invalid tokens'
+        def statuses = ["invalid-1", "invalid-2"].collect {
+            get("/user", [(HttpHeaders.AUTHORIZATION): "Bearer ${it}".toString()]).statusCode()
+        }
+
+        then: 'the second is rejected as the client has exhausted its failures'
+        statuses == [401, 429]
+    }
+
+    def "requests are never authenticated with the username of the thread's previous request"() {
+        given:
+        start('{"method": "httpHeaders"}')
+        def usernames = (0..<50).collect { "user-${it}".toString() }
+
+        when: 'each request is continued on another thread, leaving its username on the request thread'
+        def responses = usernames.collect { get("/async", headersFor(it)) }
+
+        then:
+        responses*.statusCode().every { it == 200 }
+        usernamesInMdcDuringAuthentication.size() == usernames.size()
+        usernamesInMdcDuringAuthentication.every { it == null }
+
+        and: 'the username is carried to the continuation'
+        responses*.body() == usernames
+    }
+
+    def "the username is removed from the MDC as the request thread leaves each request"() {
+        given:
+        start('{"method": "httpHeaders"}')
+        def usernames = (0..<10).collect { "user-${it}".toString() }
+        def conditions = new PollingConditions(timeout: 5)
+
+        when: 'each request is continued on another thread, so its response is not sent by the request thread'
+        def responses = usernames.collect { get("/async", headersFor(it)) }
+
+        then:
+        responses*.statusCode().every { it == 200 }
+        conditions.eventually {
+            assert usernamesInMdcAfterRequest.size() == usernames.size()
+        }
+        usernamesInMdcAfterRequest.every { it == null }
+    }
+
+    def "the user is added to the Jetty request for the request log"() {
+        given:
+        start('{"method": "httpHeaders"}')
+        def conditions = new PollingConditions(timeout: 5)
+
+        when:
+        def responses = [get("/user", headersFor("test.user")), get("/user", [:])]
+
+        then:
+        responses*.statusCode() == [200, 401]
+        conditions.eventually {
+            assert jettyUserPrincipals == ["test.user", null]
+        }
+    }
+
+    def "user produced by the authenticator is added to the request without converting the principal"() {
+        given:
+        start('{"method": "httpHeaders"}')
+
+        when:
+        def response = get("/user", headersFor("test.user"))
+
+        then: 'the converter (which cannot convert principals back) is not used'
+        response.statusCode() == 200
+        response.body() == "test.user"
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * Starts Jetty serving {@link UserResource} and {@link AsyncResource}, authenticated by the
+     * bundle. Records the state of the request thread as it leaves each request, outside of any
+     * filter added by the bundle.
+     *
+     * @param json Configuration of the authentication.
+     */
+    void start(String json) {
+        def factory = Jackson.newObjectMapper().readValue(json, ExternallyAuthenticatedAuthFilterFactory)
+        def configuration = { factory } as ExternallyAuthenticatedAuthBundleConfiguration
+        def recorder = { ServletRequest request, ServletResponse response, FilterChain chain ->
+            chain.doFilter(request, response)
+            usernamesInMdcAfterRequest << MDC.get(MDC_FIELD)
+            jettyUserPrincipals << Request.getBaseRequest(request).userPrincipal?.name
+        } as Filter
+        environment.servlets().addFilter("recorder", recorder)
+                .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*")
+        new ExternallyAuthenticatedAuthBundle<>(TestPrincipal, new TestPrincipalConverter(), listener)
+                .run(configuration, environment)
+        environment.jersey().register(new UserResource())
+        environment.jersey().register(new AsyncResource(MdcPropagatingExecutor.wrap(continuationThreads)))
+
+        // Few request threads, so that threads are reused between requests.
+        server = new Server(new QueuedThreadPool(8, 8))
+        def connector = new ServerConnector(server, 1, 1)
+        server.addConnector(connector)
+        def context = environment.applicationContext
+        context.addServlet(new ServletHolder(new ServletContainer(environment.jersey().resourceConfig)), "/*")
+        server.handler = context
+        server.start()
+    }
+
+    /**
+     * @param path Path of the resource.
+     * @param headers Headers of the request.
+     * @return The response to a GET of the resource.
+     */
+    HttpResponse<String> get(String path, Map<String, String> headers) {
+        def port = ((ServerConnector) server.connectors[0]).localPort
+        def request = HttpRequest.newBuilder(URI.create("http://localhost:${port}${path}")).GET()
+        headers.each { name, value -> request.header(name, value) }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString())
+    }
+
+    /**
+     * @param username Username of the user.
+     * @return Headers authenticating the user via the {@code httpHeaders} method.
+     */
+    Map<String, String> headersFor(String username) {
+        return [
+            "X-Auth-Username"   : username,
+            "X-Auth-Given-Name" : "Test",
+            "X-Auth-Family-Name": "User",
+        ]
+    }
+
+    /**
+     * @return A new Base64 encoded RSA public key.
+     */
+    String createSigningKey() {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA")
+        generator.initialize(2048)
+        return Base64.encoder.encodeToString(generator.generateKeyPair().public.encoded)
+    }
+
+    /** Principal used by the application. */
+    static class TestPrincipal implements Principal {
+        final String name
+
+        TestPrincipal(String name) {
+            this.name = name
+        }
+    }
+
+    /** Converts users to principals, but cannot convert principals back to users. */
+    static class TestPrincipalConverter implements PrincipalConverter<TestPrincipal> {
+        @Override
+        Optional<InternalUser> convertToInternalUser(TestPrincipal principal) {
+            throw new UnsupportedOperationException("Principals cannot be converted to users")
+        }
+
+        @Override
+        TestPrincipal convertToPrincipal(InternalUser internalUser) {
+            return new TestPrincipal(internalUser.username)
+        }
+    }
+
+    /** Returns the name of the authenticated principal. */
+    @Path("/user")
+    static class UserResource {
+        @GET
+        String get(@Auth TestPrincipal principal) {
+            return principal.name
+        }
+    }
+
+    /** Returns the username in the MDC of the thread which continues the request. */
+    @Path("/async")
+    static class AsyncResource {
+        final Executor executor
+
+        AsyncResource(Executor executor) {
+            this.executor = executor
+        }
+
+        @GET
+        void get(@Auth TestPrincipal principal, @Suspended AsyncResponse response) {
+            executor.execute { response.resume(MDC.get(MDC_FIELD)) }
+        }
+    }
+}
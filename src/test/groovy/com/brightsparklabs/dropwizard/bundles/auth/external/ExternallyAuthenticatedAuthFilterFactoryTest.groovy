@@ -0,0 +1,131 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.dropwizard.auth.PermitAllAuthorizer
+import io.dropwizard.core.setup.Environment
+import io.dropwizard.jackson.Jackson
+import spock.lang.Specification
+
+import java.security.KeyPairGenerator
+
+/**
+ * Unit tests for {@link ExternallyAuthenticatedAuthFilterFactory}.
+ *
+ * @author brightSPARK Labs
+ */
+class ExternallyAuthenticatedAuthFilterFactoryTest extends Specification {
+
+    final ObjectMapper objectMapper = Jackson.newObjectMapper()
+
+    final Environment environment = new Environment("test")
+
+    final PrincipalConverter principalConverter = new IdentityPrincipalConverter()
+
+    final String signingKey = createSigningKey()
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "metrics of each delegate are recorded against its metrics name"() {
+        given:
+        def factory = parse("""{
+            "method": "chained",
+            "delegates": [
+                {"method": "jwt", "metricsName": "jwt-internal", "signingKey": "${signingKey}", "tokenCache": {}},
+                {"method": "jwt", "metricsName": "jwt-partner", "signingKey": "${signingKey}", "tokenCache": {}},
+                {"method": "httpHeaders"}
+            ]
+        }""")
+
+        when:
+        factory.build(principalConverter, new PermitAllAuthorizer(), [], environment)
+
+        then:
+        def metrics = environment.metrics()
+        ["jwt-internal", "jwt-partner"].every { name ->
+            ["hits", "misses", "evictions", "size"].every { gauge ->
+                metrics.gauges[AuthenticationMetrics.name(name, "token-cache", gauge)]?.value == 0L
+            } && metrics.timers.containsKey(AuthenticationMetrics.name(name, "signature-verification"))
+        }
+        metrics.meters.containsKey(AuthenticationMetrics.name("httpHeaders", "success"))
+        metrics.histograms.containsKey(AuthenticationMetrics.name("chained", "successful-delegate"))
+    }
+
+    def "filters sharing a metrics name within a chain are rejected"() {
+        given:
+        def factory = parse("""{
+            "method": "chained",
+            "delegates": [
+                {"method": "jwt", "signingKey": "${signingKey}", "tokenCache": {}},
+                {"method": "chained", "metricsName": "nested", "delegates": [{"method": "jwt", "signingKey": "${signingKey}"}]}
+            ]
+        }""")
+
+        when:
+        factory.build(principalConverter, new PermitAllAuthorizer(), [], environment)
+
+        then:
+        def ex = thrown IllegalArgumentException
+        ex.message.contains("[jwt]")
+    }
+
+    def "top-level only options are rejected on delegates"() {
+        given:
+        def factory = parse("""{
+            "method": "chained",
+            "delegates": [{"method": "httpHeaders", ${option}}]
+        }""")
+
+        when:
+        factory.build(principalConverter, new PermitAllAuthorizer(), [], environment)
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        option << ['"knownRoles": ["ADMIN"]', '"asyncEventDispatch": {}']
+    }
+
+    def "chained filters challenge with the scheme of their first delegate"() {
+        expect:
+        parse('{"method": "chained", "delegates": [{"method": "jwt"}, {"method": "httpHeaders"}]}')
+                .challengePrefix == "Bearer"
+        parse('{"method": "chained", "delegates": [{"method": "httpHeaders"}, {"method": "jwt"}]}')
+                .challengePrefix == "Basic"
+    }
+
+    def "metrics name defaults to the filter type"() {
+        expect:
+        parse('{"method": "httpHeaders"}').metricsName == "httpHeaders"
+        parse('{"method": "httpHeaders", "metricsName": "sso"}').metricsName == "sso"
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param json Configuration of the factory.
+     * @return The factory described by the configuration.
+     */
+    ExternallyAuthenticatedAuthFilterFactory parse(String json) {
+        return objectMapper.readValue(json, ExternallyAuthenticatedAuthFilterFactory)
+    }
+
+    /**
+     * @return A new Base64 encoded RSA public key.
+     */
+    String createSigningKey() {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA")
+        generator.initialize(2048)
+        return Base64.encoder.encodeToString(generator.generateKeyPair().public.encoded)
+    }
+}
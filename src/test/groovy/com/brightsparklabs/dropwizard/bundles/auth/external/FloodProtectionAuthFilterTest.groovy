@@ -0,0 +1,373 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.codahale.metrics.MetricRegistry
+import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Ticker
+import io.dropwizard.auth.AuthFilter
+import jakarta.ws.rs.WebApplicationException
+import jakarta.ws.rs.container.ContainerRequestContext
+import jakarta.ws.rs.core.HttpHeaders
+import jakarta.ws.rs.core.Response
+import jakarta.ws.rs.core.SecurityContext
+import org.glassfish.jersey.internal.MapPropertiesDelegate
+import org.glassfish.jersey.server.ContainerRequest
+import org.glassfish.jersey.server.ResourceConfig
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+/**
+ * Unit tests for {@link FloodProtectionAuthFilter} and {@link FailedAuthenticationRateLimiter}.
+ *
+ * @author brightSPARK Labs
+ */
+class FloodProtectionAuthFilterTest extends Specification {
+
+    final MetricRegistry metricRegistry = new MetricRegistry()
+
+    final FakeTicker ticker = new FakeTicker()
+
+    String clientAddress = "10.0.0.1"
+
+    int delegateCalls = 0
+
+    /** Accepts tokens starting with 'valid', and rejects 'premature' as retryable. */
+    final AuthFilter<Object, InternalUser> delegate = new AuthFilter<Object, InternalUser>() {
+        @Override
+        void filter(ContainerRequestContext requestContext) {
+            delegateCalls++
+            def authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION)
+            if (authorization?.startsWith("Bearer valid")) {
+                requestContext.setSecurityContext([:] as SecurityContext)
+                return
+            }
+            if (authorization == "Bearer premature") {
+                requestContext.setProperty(ExternalAuthenticator.RETRYABLE_DENIAL_PROPERTY, true)
+            }
+            throw new WebApplicationException(Response.status(401)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, 'Bearer realm="realm"')
+                    .build())
+        }
+    }
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "repeated rejected tokens are rejected without calling the delegate"() {
+        given:
+        def filter = createFilter(FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 100)
+
+        when:
+        filter.filter(createRequest("Bearer invalid"))
+
+        then:
+        thrown WebApplicationException
+        delegateCalls == 1
+
+        when:
+        filter.filter(createRequest("Bearer invalid"))
+
+        then:
+        def ex = thrown WebApplicationException
+        ex.response.status == 401
+        ex.response.getHeaderString(HttpHeaders.WWW_AUTHENTICATE) == 'Bearer realm="realm"'
+        delegateCalls == 1
+        metricRegistry.meter("jwt.flood-protection.rejected-token").count == 1
+    }
+
+    def "tokens denied for a reason which may not persist are verified again"() {
+        given:
+        def filter = createFilter(FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 100)
+
+        when:
+        2.times {
+            try {
+                filter.filter(createRequest("Bearer premature"))
+            } catch (WebApplicationException ignored) {
+            }
+        }
+
+        then:
+        delegateCalls == 2
+        metricRegistry.meter("jwt.flood-protection.rejected-token").count == 0
+    }
+
+    def "clients exceeding the failure burst are rate limited with #status"() {
+        given:
+        def filter = createFilter(rejectionStatus, 2)
+
+        when: 'the client fails twice with distinct tokens'
+        2.times { i ->
+            try {
+                filter.filter(createRequest("Bearer invalid-${i}"))
+            } catch (WebApplicationException ignored) {
+            }
+        }
+        filter.filter(createRequest("Bearer valid"))
+
+        then: 'even a valid token is rejected'
+        def ex = thrown WebApplicationException
+        ex.response.status == status
+        ex.response.getHeaderString(HttpHeaders.RETRY_AFTER) == retryAfter
+        delegateCalls == 2
+        metricRegistry.meter("jwt.flood-protection.rate-limit").count == 1
+
+        when: 'another client authenticates'
+        clientAddress = "10.0.0.2"
+        filter.filter(createRequest("Bearer valid"))
+
+        then:
+        notThrown WebApplicationException
+
+        when: 'the first client waits for its bucket to refill'
+        clientAddress = "10.0.0.1"
+        ticker.advance(Duration.ofSeconds(1))
+        filter.filter(createRequest("Bearer valid"))
+
+        then:
+        notThrown WebApplicationException
+
+        where:
+        rejectionStatus                                           | status | retryAfter
+        FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS | 429    | "1"
+        FloodProtectionAuthFilter.RejectionStatus.UNAUTHORIZED      | 401    | null
+    }
+
+    def "tokens recently accepted are not rate limited"() {
+        given:
+        def filter = createFilter(FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 1)
+        filter.filter(createRequest("Bearer valid"))
+
+        when: 'the client exhausts its limit'
+        try {
+            filter.filter(createRequest("Bearer invalid"))
+        } catch (WebApplicationException ignored) {
+        }
+        filter.filter(createRequest("Bearer valid"))
+
+        then: 'the accepted token is still verified, but not limited'
+        notThrown WebApplicationException
+        delegateCalls == 3
+
+        when: 'a token which has not been accepted is presented'
+        filter.filter(createRequest("Bearer valid-new"))
+
+        then:
+        def ex = thrown WebApplicationException
+        ex.response.status == 429
+        delegateCalls == 3
+    }
+
+    def "distinct clients do not share a limit"() {
+        given:
+        def filter = createFilter(FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 1)
+        def clients = (1..8).collect { "10.0.0.${it}" as String }
+
+        when: 'each client fails once, exhausting its own limit'
+        clients.each { client ->
+            clientAddress = client
+            try {
+                filter.filter(createRequest("Bearer invalid-${client}"))
+            } catch (WebApplicationException ex) {
+                assert ex.response.status == 401
+            }
+        }
+
+        then: 'no client was limited by the failures of another'
+        delegateCalls == clients.size()
+        metricRegistry.meter("jwt.flood-protection.rate-limit").count == 0
+    }
+
+    def "clients which hash to the same stripe share a limit"() {
+        given:
+        def filter = new FloodProtectionAuthFilter<InternalUser>(
+                delegate,
+                Caffeine.newBuilder().maximumSize(100).build(),
+                Caffeine.newBuilder().maximumSize(100).build(),
+                new FailedAuthenticationRateLimiter(1, 1.0, 1, ticker),
+                FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS,
+                metricRegistry.meter("jwt.flood-protection.rejected-token"),
+                metricRegistry.meter("jwt.flood-protection.rate-limit"))
+        clientAddress = "10.0.0.2"
+        filter.filter(createRequest("Bearer valid"))
+
+        when: 'another client exhausts the shared limit'
+        clientAddress = "10.0.0.1"
+        try {
+            filter.filter(createRequest("Bearer invalid"))
+        } catch (WebApplicationException ignored) {
+        }
+        clientAddress = "10.0.0.2"
+        filter.filter(createRequest("Bearer valid-new"))
+
+        then: 'a new token is limited'
+        def ex = thrown WebApplicationException
+        ex.response.status == 429
+
+        when: 'a recently accepted token is presented'
+        filter.filter(createRequest("Bearer valid"))
+
+        then:
+        notThrown WebApplicationException
+    }
+
+    def "requests without a token are passed straight to the delegate"() {
+        given:
+        def filter = createFilter(FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 1)
+
+        when:
+        3.times {
+            try {
+                filter.filter(createRequest(null))
+            } catch (WebApplicationException ignored) {
+            }
+        }
+
+        then:
+        delegateCalls == 3
+        metricRegistry.meter("jwt.flood-protection.rate-limit").count == 0
+    }
+
+    def "delegates of a chained filter are rate limited per client"() {
+        given:
+        def chained = new InstrumentedChainedAuthFilter<InternalUser>(
+                [createFilter(delegate, FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 1)],
+                metricRegistry.timer("chained.filter"),
+                metricRegistry.histogram("chained.successful-delegate"),
+                "Bearer",
+                "realm")
+
+        when:
+        try {
+            chained.filter(createRequest("Bearer invalid"))
+        } catch (WebApplicationException ignored) {
+        }
+        chained.filter(createRequest("Bearer valid"))
+
+        then:
+        def ex = thrown WebApplicationException
+        ex.response.status == 429
+        delegateCalls == 1
+
+        when: 'another client authenticates'
+        clientAddress = "10.0.0.2"
+        chained.filter(createRequest("Bearer valid"))
+
+        then:
+        notThrown WebApplicationException
+        delegateCalls == 2
+    }
+
+    def "requests without a recorded client address are not rate limited"() {
+        given:
+        def filter = createFilter(FloodProtectionAuthFilter.RejectionStatus.TOO_MANY_REQUESTS, 1)
+        clientAddress = null
+
+        when:
+        try {
+            filter.filter(createRequest("Bearer invalid"))
+        } catch (WebApplicationException ignored) {
+        }
+        filter.filter(createRequest("Bearer valid"))
+
+        then:
+        notThrown WebApplicationException
+        delegateCalls == 2
+    }
+
+    def "rate limiter refills at the configured rate"() {
+        given:
+        def limiter = new FailedAuthenticationRateLimiter(5, 2.0, 3, ticker)
+
+        expect:
+        limiter.stripes == 8
+
+        when:
+        3.times { limiter.recordFailure("client") }
+
+        then:
+        limiter.getDelayNanos("client") == TimeUnit.MILLISECONDS.toNanos(500)
+        limiter.getDelayNanos("other") == 0
+
+        when:
+        ticker.advance(Duration.ofMillis(500))
+
+        then:
+        limiter.getDelayNanos("client") == 0
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param rateLimitStatus Status to respond to rate limited clients with.
+     * @param burst Number of failures permitted at once.
+     * @return A new filter protecting {@link #delegate}, refilling at one failure per second.
+     */
+    FloodProtectionAuthFilter<InternalUser> createFilter(
+            FloodProtectionAuthFilter.RejectionStatus rateLimitStatus, int burst) {
+        return createFilter(delegate, rateLimitStatus, burst)
+    }
+
+    /**
+     * @param delegate The filter to protect.
+     * @param rateLimitStatus Status to respond to rate limited clients with.
+     * @param burst Number of failures permitted at once.
+     * @return A new filter protecting the delegate, refilling at one failure per second.
+     */
+    FloodProtectionAuthFilter<InternalUser> createFilter(AuthFilter<?, InternalUser> delegate,
+            FloodProtectionAuthFilter.RejectionStatus rateLimitStatus, int burst) {
+        return new FloodProtectionAuthFilter<InternalUser>(
+                delegate,
+                Caffeine.newBuilder().maximumSize(100).build(),
+                Caffeine.newBuilder().maximumSize(100).build(),
+                new FailedAuthenticationRateLimiter(16, 1.0, burst, ticker),
+                rateLimitStatus,
+                metricRegistry.meter("jwt.flood-protection.rejected-token"),
+                metricRegistry.meter("jwt.flood-protection.rate-limit"))
+    }
+
+    /**
+     * @param authorization Value of the Authorization header, or null to omit it.
+     * @return A new unauthenticated request from {@link #clientAddress}, as recorded by {@link
+     *     ClientAddressFilter}.
+     */
+    ContainerRequest createRequest(String authorization) {
+        def request = new ContainerRequest(
+                URI.create("http://localhost/"),
+                URI.create("http://localhost/resource"),
+                "GET",
+                Mock(SecurityContext),
+                new MapPropertiesDelegate(),
+                new ResourceConfig())
+        request.setProperty(ClientAddressFilter.CLIENT_ADDRESS_PROPERTY, clientAddress)
+        if (authorization != null) {
+            request.headers.putSingle(HttpHeaders.AUTHORIZATION, authorization)
+        }
+        return request
+    }
+
+    /** Ticker which only advances when told to. */
+    static class FakeTicker implements Ticker {
+        long nanos = 0
+
+        @Override
+        long read() {
+            return nanos
+        }
+
+        void advance(Duration duration) {
+            nanos += duration.toNanos()
+        }
+    }
+}
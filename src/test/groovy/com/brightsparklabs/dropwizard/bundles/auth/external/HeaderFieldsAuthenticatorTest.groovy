@@ -7,6 +7,7 @@
 
 package com.brightsparklabs.dropwizard.bundles.auth.external
 
+import com.codahale.metrics.MetricRegistry
 import jakarta.ws.rs.core.MultivaluedHashMap
 import spock.lang.Specification
 
@@ -108,6 +109,25 @@ class HeaderFieldsAuthenticatorTest extends Specification {
         1 * listener.onAuthenticationDenied(*_)
     }
 
+    def "authenticate records metrics"() {
+        given:
+        def metricRegistry = new MetricRegistry()
+        def metrics = new AuthenticationMetrics(metricRegistry, "httpHeaders")
+        def instance = new HeaderFieldsAuthenticator(principalConverter, [], metrics)
+        def validHeaders = createHeaders("first.last", "first", "last", null, "g1", "r1")
+        def invalidHeaders = createHeaders(null, "first", "last", null, null, null)
+
+        when:
+        instance.authenticate(validHeaders)
+        instance.authenticate(invalidHeaders)
+
+        then:
+        metricRegistry.meter(AuthenticationMetrics.name("httpHeaders", "success")).count == 1
+        metricRegistry.meter(AuthenticationMetrics.name("httpHeaders", "denied")).count == 1
+        metricRegistry.timer(AuthenticationMetrics.name("httpHeaders", "claim-extraction")).count == 2
+        metricRegistry.timer(AuthenticationMetrics.name("httpHeaders", "principal-conversion")).count == 1
+    }
+
     // ------------------------------------------------------------------------------
     // FIXTURES
     // ------------------------------------------------------------------------------
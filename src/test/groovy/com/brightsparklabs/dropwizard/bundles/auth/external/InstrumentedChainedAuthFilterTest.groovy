@@ -0,0 +1,155 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.codahale.metrics.MetricRegistry
+import io.dropwizard.auth.AuthFilter
+import jakarta.ws.rs.WebApplicationException
+import jakarta.ws.rs.container.ContainerRequestContext
+import jakarta.ws.rs.core.HttpHeaders
+import jakarta.ws.rs.core.Response
+import jakarta.ws.rs.core.SecurityContext
+import org.glassfish.jersey.internal.MapPropertiesDelegate
+import org.glassfish.jersey.server.ContainerRequest
+import org.glassfish.jersey.server.ResourceConfig
+import spock.lang.Specification
+
+/**
+ * Unit tests for {@link InstrumentedChainedAuthFilter}.
+ *
+ * @author brightSPARK Labs
+ */
+class InstrumentedChainedAuthFilterTest extends Specification {
+
+    final MetricRegistry metricRegistry = new MetricRegistry()
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "index of the delegate which authenticated the request is recorded"() {
+        given:
+        def filter = createFilter([rejecting('Basic realm="first"'), authenticating()])
+        def request = createRequest()
+
+        when:
+        filter.filter(request)
+
+        then:
+        request.securityContext.userPrincipal.username == "test.user"
+        metricRegistry.histogram("successful-delegate").count == 1
+        metricRegistry.histogram("successful-delegate").snapshot.values == [1L] as long[]
+        metricRegistry.timer("filter").count == 1
+    }
+
+    def "rejected requests receive the challenge of the first delegate"() {
+        given:
+        def filter = createFilter([rejecting('Basic realm="first"'), rejecting('Bearer realm="last"')])
+
+        when:
+        filter.filter(createRequest())
+
+        then:
+        def ex = thrown WebApplicationException
+        ex.response.status == 401
+        ex.response.getHeaderString(HttpHeaders.WWW_AUTHENTICATE) == 'Basic realm="first"'
+        metricRegistry.histogram("successful-delegate").count == 0
+        metricRegistry.timer("filter").count == 1
+    }
+
+    def "rejected requests receive the configured challenge if no delegate rejects them"() {
+        given:
+        def filter = createFilter([ignoring()])
+
+        when:
+        filter.filter(createRequest())
+
+        then:
+        def ex = thrown WebApplicationException
+        ex.response.status == 401
+        ex.response.getHeaderString(HttpHeaders.WWW_AUTHENTICATE) == 'Bearer realm="api"'
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param delegates The filters to chain.
+     * @return A new filter recording its metrics in {@link #metricRegistry}, which challenges
+     *     requests no delegate rejects with {@code Bearer realm="api"}.
+     */
+    InstrumentedChainedAuthFilter<InternalUser> createFilter(List<AuthFilter<?, InternalUser>> delegates) {
+        return new InstrumentedChainedAuthFilter<>(
+                delegates,
+                metricRegistry.timer("filter"),
+                metricRegistry.histogram("successful-delegate"),
+                "Bearer",
+                "api")
+    }
+
+    /**
+     * @param challenge Value of the {@code WWW-Authenticate} header to reject requests with.
+     * @return A filter which rejects every request.
+     */
+    AuthFilter<Object, InternalUser> rejecting(String challenge) {
+        return new AuthFilter<Object, InternalUser>() {
+            @Override
+            void filter(ContainerRequestContext requestContext) {
+                throw new WebApplicationException(Response.status(401)
+                        .header(HttpHeaders.WWW_AUTHENTICATE, challenge)
+                        .build())
+            }
+        }
+    }
+
+    /**
+     * @return A filter which neither authenticates nor rejects any request.
+     */
+    AuthFilter<Object, InternalUser> ignoring() {
+        return new AuthFilter<Object, InternalUser>() {
+            @Override
+            void filter(ContainerRequestContext requestContext) {}
+        }
+    }
+
+    /**
+     * @return A filter which authenticates every request as {@code test.user}.
+     */
+    AuthFilter<Object, InternalUser> authenticating() {
+        def user = ImmutableInternalUser.builder()
+                .username("test.user")
+                .firstname("Test")
+                .lastname("User")
+                .build()
+        return new AuthFilter<Object, InternalUser>() {
+            @Override
+            void filter(ContainerRequestContext requestContext) {
+                requestContext.securityContext = [
+                    getUserPrincipal       : { user },
+                    isUserInRole           : { String role -> false },
+                    isSecure               : { false },
+                    getAuthenticationScheme: { SecurityContext.BASIC_AUTH },
+                ] as SecurityContext
+            }
+        }
+    }
+
+    /**
+     * @return A new unauthenticated request.
+     */
+    ContainerRequest createRequest() {
+        return new ContainerRequest(
+                URI.create("http://localhost/"),
+                URI.create("http://localhost/resource"),
+                "GET",
+                Mock(SecurityContext),
+                new MapPropertiesDelegate(),
+                new ResourceConfig())
+    }
+}
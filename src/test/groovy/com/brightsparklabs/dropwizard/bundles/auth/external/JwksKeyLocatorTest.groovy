@@ -0,0 +1,328 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.codahale.metrics.MetricRegistry
+import com.sun.net.httpserver.HttpServer
+import groovy.json.JsonOutput
+import io.dropwizard.auth.oauth.OAuthCredentialAuthFilter
+import io.dropwizard.jackson.Jackson
+import io.dropwizard.jersey.validation.Validators
+import io.jsonwebtoken.Jwts
+import jakarta.ws.rs.WebApplicationException
+import jakarta.ws.rs.core.HttpHeaders
+import jakarta.ws.rs.core.SecurityContext
+import org.glassfish.jersey.internal.MapPropertiesDelegate
+import org.glassfish.jersey.server.ContainerRequest
+import org.glassfish.jersey.server.ResourceConfig
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.security.KeyPair
+import java.security.KeyPairGenerator
+import java.security.interfaces.RSAPublicKey
+import java.time.Duration
+
+/**
+ * Unit tests for {@link JwksKeyLocator}.
+ *
+ * @author brightSPARK Labs
+ */
+class JwksKeyLocatorTest extends Specification {
+
+    final PrincipalConverter principalConverter = new IdentityPrincipalConverter()
+
+    final KeyPair keyPair1 = createKeyPair()
+
+    final KeyPair keyPair2 = createKeyPair()
+
+    JwksKeyLocator locator
+
+    def cleanup() {
+        locator?.stop()
+    }
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "authenticates tokens signed with any key in a JWKS file"() {
+        given:
+        Path jwksFile = writeJwks(Files.createTempFile("jwks", ".json"), [k1: keyPair1, k2: keyPair2])
+        locator = new JwksKeyLocator(jwksFile.toUri(), Duration.ofMinutes(15), Duration.ofSeconds(30), Duration.ofSeconds(5))
+        locator.start()
+        def authenticator = createAuthenticator(locator)
+
+        when:
+        InternalUser user1 = authenticator.doAuthenticate(createJwt("k1", keyPair1))
+        InternalUser user2 = authenticator.doAuthenticate(createJwt("k2", keyPair2))
+
+        then:
+        locator.keys.keySet() == ["k1", "k2"] as Set
+        user1.username == "test.user"
+        user2.username == "test.user"
+    }
+
+    def "rejects tokens signed with the wrong key or an unknown key id"() {
+        given:
+        Path jwksFile = writeJwks(Files.createTempFile("jwks", ".json"), [k1: keyPair1])
+        locator = new JwksKeyLocator(jwksFile.toUri(), Duration.ofMinutes(15), Duration.ofMinutes(15), Duration.ofSeconds(5))
+        locator.start()
+        def authenticator = createAuthenticator(locator)
+
+        when:
+        authenticator.doAuthenticate(createJwt(kid, keyPair2))
+
+        then:
+        thrown AuthenticationDeniedException
+
+        where:
+        kid << ["k1", "unknown"]
+    }
+
+    def "unknown key id triggers a refresh from the JWKS endpoint"() {
+        given:
+        String jwks = toJwks([k1: keyPair1])
+        int requestCount = 0
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+        server.createContext("/jwks") { exchange ->
+            requestCount++
+            byte[] body = jwks.getBytes(StandardCharsets.UTF_8)
+            exchange.sendResponseHeaders(200, body.length)
+            exchange.responseBody.withCloseable { it.write(body) }
+        }
+        server.start()
+        URI location = URI.create("http://localhost:${server.address.port}/jwks")
+        locator = new JwksKeyLocator(location, Duration.ofMinutes(15), Duration.ZERO, Duration.ofSeconds(5))
+        locator.start()
+        def authenticator = createAuthenticator(locator)
+        def conditions = new PollingConditions(timeout: 5)
+
+        when: 'the key is rotated at the identity provider'
+        jwks = toJwks([k1: keyPair1, k2: keyPair2])
+        authenticator.doAuthenticate(createJwt("k2", keyPair2))
+
+        then: 'the first token is rejected but triggers a refresh'
+        thrown AuthenticationDeniedException
+        conditions.eventually {
+            assert locator.keys.containsKey("k2")
+        }
+
+        when:
+        InternalUser user = authenticator.doAuthenticate(createJwt("k2", keyPair2))
+
+        then:
+        user.username == "test.user"
+        requestCount == 2
+
+        cleanup:
+        server.stop(0)
+    }
+
+    def "listeners are notified only when the keys change"() {
+        given:
+        Path jwksFile = writeJwks(Files.createTempFile("jwks", ".json"), [k1: keyPair1])
+        locator = new JwksKeyLocator(jwksFile.toUri(), Duration.ofMillis(50), Duration.ofSeconds(30), Duration.ofSeconds(5))
+        locator.start()
+        int notifications = 0
+        locator.addKeySetListener { notifications++ }
+        def conditions = new PollingConditions(timeout: 5)
+
+        when: 'the JWKS is reloaded without changes'
+        Thread.sleep(200)
+
+        then:
+        notifications == 0
+
+        when: 'a key is added'
+        writeJwks(jwksFile, [k1: keyPair1, k2: keyPair2])
+
+        then:
+        conditions.eventually {
+            assert locator.keys.containsKey("k2")
+            assert notifications == 1
+        }
+    }
+
+    def "cached tokens are verified again once their key is removed from the JWKS"() {
+        given:
+        Path jwksFile = writeJwks(Files.createTempFile("jwks", ".json"), [k1: keyPair1, k2: keyPair2])
+        locator = new JwksKeyLocator(jwksFile.toUri(), Duration.ofMillis(50), Duration.ofSeconds(30), Duration.ofSeconds(5))
+        locator.start()
+        def cache = new VerifiedTokenCache(100, Duration.ofMinutes(5))
+        locator.addKeySetListener(cache.&invalidateAll)
+        def authenticator = new JwtAuthenticator<InternalUser>(principalConverter,
+                JwtAuthenticator.createJwtParser(locator), [], Optional.of(cache))
+        def jwt = createJwt("k1", keyPair1)
+        def conditions = new PollingConditions(timeout: 5)
+
+        when:
+        authenticator.doAuthenticate(jwt)
+
+        then:
+        cache.get(jwt).isPresent()
+
+        when: 'the key is removed from the JWKS'
+        writeJwks(jwksFile, [k2: keyPair2])
+        conditions.eventually {
+            assert !locator.keys.containsKey("k1")
+        }
+        authenticator.doAuthenticate(jwt)
+
+        then:
+        thrown AuthenticationDeniedException
+    }
+
+    def "tokens signed with a rotated key are accepted once it is loaded despite flood protection"() {
+        given:
+        Path jwksFile = writeJwks(Files.createTempFile("jwks", ".json"), [k1: keyPair1])
+        locator = new JwksKeyLocator(jwksFile.toUri(), Duration.ofMinutes(15), Duration.ZERO, Duration.ofSeconds(5))
+        locator.start()
+        def filter = new RequestBindingAuthFilter(new FloodProtectionFactory().build(
+                new OAuthCredentialAuthFilter.Builder<InternalUser>()
+                        .setAuthenticator(createAuthenticator(locator))
+                        .setPrefix("Bearer")
+                        .buildAuthFilter(),
+                new MetricRegistry(),
+                "jwt"))
+        def jwt = createJwt("k2", keyPair2)
+        def conditions = new PollingConditions(timeout: 5)
+
+        when: 'the key is rotated at the identity provider'
+        writeJwks(jwksFile, [k1: keyPair1, k2: keyPair2])
+        filter.filter(createRequest(jwt))
+
+        then: 'the first token is rejected but triggers a refresh'
+        def ex = thrown WebApplicationException
+        ex.response.status == 401
+        conditions.eventually {
+            assert locator.keys.containsKey("k2")
+        }
+
+        when: 'the token is presented again'
+        def request = createRequest(jwt)
+        filter.filter(request)
+
+        then: 'it is verified rather than rejected as recently rejected'
+        request.securityContext.userPrincipal.username == "test.user"
+    }
+
+    def "timeouts too long for the connection are rejected rather than overflowing"() {
+        when:
+        new JwksKeyLocator(URI.create("file:/jwks.json"), Duration.ofMinutes(15), Duration.ofSeconds(30), Duration.ofDays(30))
+
+        then:
+        thrown ArithmeticException
+
+        when:
+        def factory = Jackson.newObjectMapper().readValue(
+                '{"location": "file:/jwks.json", "timeout": "30 days"}', JwksKeyLocatorFactory)
+        def violations = Validators.newValidator().validate(factory)
+
+        then:
+        violations*.propertyPath*.toString() == ["timeout"]
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @return A new RSA 2048-bit key pair.
+     */
+    def createKeyPair() {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA")
+        generator.initialize(2048)
+        return generator.generateKeyPair()
+    }
+
+    /**
+     * @param keyLocator Locator to verify tokens with.
+     * @return A new authenticator verifying tokens with the keys from the locator.
+     */
+    def createAuthenticator(JwksKeyLocator keyLocator) {
+        return new JwtAuthenticator<InternalUser>(principalConverter,
+                JwtAuthenticator.createJwtParser(keyLocator), [], Optional.empty())
+    }
+
+    /**
+     * @param jwt Token to send as a bearer token.
+     * @return A new unauthenticated request carrying the token.
+     */
+    ContainerRequest createRequest(String jwt) {
+        def request = new ContainerRequest(
+                URI.create("http://localhost/"),
+                URI.create("http://localhost/resource"),
+                "GET",
+                Mock(SecurityContext),
+                new MapPropertiesDelegate(),
+                new ResourceConfig())
+        request.headers.putSingle(HttpHeaders.AUTHORIZATION, "Bearer ${jwt}" as String)
+        return request
+    }
+
+    /**
+     * @param kid Key id to include in the header.
+     * @param keyPair Key pair to sign the JWT with.
+     * @return A new JWT for a test user.
+     */
+    String createJwt(String kid, KeyPair keyPair) {
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .claim(JwtAuthenticator.CLAIM_FIELD_USERNAME, "test.user")
+                .claim(JwtAuthenticator.CLAIM_FIELD_FIRSTNAME, "Test")
+                .claim(JwtAuthenticator.CLAIM_FIELD_LASTNAME, "User")
+                .signWith(keyPair.getPrivate())
+                .compact()
+    }
+
+    /**
+     * @param keyPairs Key pairs to include, keyed by key id.
+     * @return A JWKS containing the public keys of the supplied key pairs.
+     */
+    String toJwks(Map<String, KeyPair> keyPairs) {
+        def keys = keyPairs.collect { kid, keyPair ->
+            RSAPublicKey publicKey = keyPair.getPublic() as RSAPublicKey
+            [
+                kty: "RSA",
+                use: "sig",
+                alg: "RS256",
+                kid: kid,
+                n  : toBase64Url(publicKey.modulus),
+                e  : toBase64Url(publicKey.publicExponent),
+            ]
+        }
+        return JsonOutput.toJson([keys: keys])
+    }
+
+    /**
+     * @param file File to write to.
+     * @param keyPairs Key pairs to include, keyed by key id.
+     * @return The file the JWKS was written to.
+     */
+    Path writeJwks(Path file, Map<String, KeyPair> keyPairs) {
+        Files.writeString(file, toJwks(keyPairs))
+        file.toFile().deleteOnExit()
+        return file
+    }
+
+    /**
+     * @param value Value to encode.
+     * @return The unsigned big-endian bytes of the value, base64url encoded.
+     */
+    String toBase64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray()
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length)
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes)
+    }
+}
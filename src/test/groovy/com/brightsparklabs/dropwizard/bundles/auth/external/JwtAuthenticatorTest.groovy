@@ -7,15 +7,18 @@
 
 package com.brightsparklabs.dropwizard.bundles.auth.external
 
-
+import com.codahale.metrics.MetricRegistry
 import com.google.common.collect.ImmutableSet
 import io.jsonwebtoken.Jwts
+import jakarta.ws.rs.container.ContainerRequestContext
 import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.security.KeyPair
 import java.security.KeyPairGenerator
 import java.security.PrivateKey
+import java.time.Duration
+import java.util.function.Consumer
 
 /**
  * Unit tests for {@link JwtAuthenticator}.
@@ -143,6 +146,169 @@ class JwtAuthenticatorTest extends Specification {
         // spotless:on
     }
 
+    def "doAuthenticate with verified token cache"() {
+        given:
+        final KeyPair keyPair = createKeyPair()
+        final publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10, Duration.ofMinutes(5))
+        def authenticator = new JwtAuthenticator<InternalUser>(principalConverter, publicKey, [], Optional.of(cache))
+        final String jwt = createJwt("test.user", "Test", "User", "test.user@test.test",
+                ["G1"], ["R1"], null, null, keyPair.getPrivate())
+
+        when:
+        InternalUser first = authenticator.doAuthenticate(jwt)
+        InternalUser second = authenticator.doAuthenticate(jwt)
+
+        then:
+        first.username == "test.user"
+        second.is(first)
+        cache.stats().missCount() == 1
+        cache.stats().hitCount() == 1
+    }
+
+    def "doAuthenticate does not cache invalid tokens"() {
+        given:
+        final KeyPair keyPair = createKeyPair()
+        final publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+        final VerifiedTokenCache cache = new VerifiedTokenCache(10, Duration.ofMinutes(5))
+        def authenticator = new JwtAuthenticator<InternalUser>(principalConverter, publicKey, [], Optional.of(cache))
+        final String jwt = createJwt("test.user", "Test", "User", "test.user@test.test",
+                null, null, null, null, createKeyPair().getPrivate())
+
+        when:
+        authenticator.doAuthenticate(jwt)
+
+        then:
+        thrown AuthenticationDeniedException
+        cache.size() == 0
+    }
+
+    def "only denials of tokens which may later be accepted are marked as retryable"() {
+        given:
+        final KeyPair keyPair = createKeyPair()
+        final publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+        def authenticator = new JwtAuthenticator<InternalUser>(principalConverter, publicKey, [], Optional.empty())
+        final String prematureJwt = Jwts.builder()
+                .claim(JwtAuthenticator.CLAIM_FIELD_USERNAME, "test.user")
+                .notBefore(new Date(System.currentTimeMillis() + Duration.ofHours(1).toMillis()))
+                .signWith(keyPair.getPrivate())
+                .compact()
+        final String invalidJwt = createJwt("test.user", "Test", "User", null,
+                null, null, null, null, createKeyPair().getPrivate())
+        def requestContext = Mock(ContainerRequestContext)
+        def previous = ExternalAuthenticator.bindRequest(requestContext)
+
+        when:
+        authenticator.doAuthenticate(invalidJwt)
+
+        then:
+        thrown AuthenticationDeniedException
+        0 * requestContext.setProperty(ExternalAuthenticator.RETRYABLE_DENIAL_PROPERTY, _)
+
+        when:
+        authenticator.doAuthenticate(prematureJwt)
+
+        then:
+        thrown AuthenticationDeniedException
+        1 * requestContext.setProperty(ExternalAuthenticator.RETRYABLE_DENIAL_PROPERTY, true)
+
+        cleanup:
+        ExternalAuthenticator.restoreRequest(previous)
+    }
+
+    def "doAuthenticate records metrics"() {
+        given:
+        final KeyPair keyPair = createKeyPair()
+        final publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+        def metricRegistry = new MetricRegistry()
+        def authenticator = new JwtAuthenticator<InternalUser>(principalConverter,
+                JwtAuthenticator.createJwtParser(publicKey), [], Optional.empty(),
+                new AuthenticationMetrics(metricRegistry, "jwt"))
+        final String validJwt = createJwt("test.user", "Test", "User", null,
+                null, null, null, null, keyPair.getPrivate())
+        final String invalidJwt = createJwt("test.user", "Test", "User", null,
+                null, null, null, null, createKeyPair().getPrivate())
+
+        when:
+        authenticator.authenticate(validJwt)
+        authenticator.authenticate(invalidJwt)
+
+        then:
+        metricRegistry.timer(AuthenticationMetrics.name("jwt", "signature-verification")).count == 2
+        metricRegistry.timer(AuthenticationMetrics.name("jwt", "claim-extraction")).count == 1
+        metricRegistry.timer(AuthenticationMetrics.name("jwt", "principal-conversion")).count == 1
+        metricRegistry.meter(AuthenticationMetrics.name("jwt", "success")).count == 1
+        metricRegistry.meter(AuthenticationMetrics.name("jwt", "denied")).count == 1
+    }
+
+    def "streaming claim decoding produces the same user as full decoding"() {
+        given:
+        final KeyPair keyPair = createKeyPair()
+        final publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+        def full = new JwtAuthenticator<InternalUser>(principalConverter,
+                JwtAuthenticator.createJwtParser(publicKey, JwtAuthenticator.ClaimDecoding.FULL), [], Optional.empty())
+        def streaming = new JwtAuthenticator<InternalUser>(principalConverter,
+                JwtAuthenticator.createJwtParser(publicKey, JwtAuthenticator.ClaimDecoding.STREAMING), [], Optional.empty())
+        final String jwt = createJwt("test.user", "Test", "User", "test.user@test.test",
+                ["G1", "G2"],
+                ["R1", "GR1"],
+                ["RR1", "GR1"],
+                [client1: ["C1R1", "COMMON"], client2: ["C2R1", "COMMON"]] as Map<String, List<String>>,
+                keyPair.getPrivate())
+
+        when:
+        InternalUser expected = full.doAuthenticate(jwt)
+        InternalUser actual = streaming.doAuthenticate(jwt)
+
+        then:
+        actual instanceof LazyInternalUser
+        actual == expected
+        expected == actual
+        actual.hashCode() == expected.hashCode()
+        actual.toString() == expected.toString()
+        actual.groups == ImmutableSet.of("G1", "G2")
+        actual.roles == ImmutableSet.of("R1", "GR1", "RR1", "C1R1", "COMMON", "C2R1")
+        actual.email == Optional.of("test.user@test.test")
+    }
+
+    def "hashing a lazy user does not compute its groups or roles"() {
+        given:
+        int computed = 0
+        def lazy = new LazyInternalUser("test.user", "Test", "User", Optional.empty(),
+                { computed++; ImmutableSet.of("G1") },
+                { Consumer<String> action -> computed++; action.accept("R1") },
+                Optional.empty())
+
+        when:
+        def hashCode = lazy.hashCode()
+
+        then:
+        computed == 0
+        hashCode == ImmutableInternalUser.builder()
+                .username("test.user")
+                .firstname("Test")
+                .lastname("User")
+                .addGroups("G1")
+                .addRoles("R1")
+                .build()
+                .hashCode()
+    }
+
+    def "streaming claim decoding denies tokens missing required claims"() {
+        given:
+        final KeyPair keyPair = createKeyPair()
+        final publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())
+        def authenticator = new JwtAuthenticator<InternalUser>(principalConverter,
+                JwtAuthenticator.createJwtParser(publicKey, JwtAuthenticator.ClaimDecoding.STREAMING), [], Optional.empty())
+        final String jwt = createJwt(null, "Test", "User", null,
+                ["G1"], null, null, null, keyPair.getPrivate())
+
+        when:
+        authenticator.doAuthenticate(jwt)
+
+        then:
+        thrown AuthenticationDeniedException
+    }
 
     // -----------------------------------------------------------------------------
     // FIXTURES
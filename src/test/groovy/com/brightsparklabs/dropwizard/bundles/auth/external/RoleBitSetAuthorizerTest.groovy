@@ -0,0 +1,153 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.google.common.collect.ImmutableSet
+import jakarta.annotation.security.RolesAllowed
+import jakarta.ws.rs.container.ResourceInfo
+import jakarta.ws.rs.core.FeatureContext
+import spock.lang.Specification
+
+import java.util.function.Consumer
+
+/**
+ * Unit tests for {@link RoleBitSetAuthorizer} and {@link RoleRegistry}.
+ *
+ * @author brightSPARK Labs
+ */
+class RoleBitSetAuthorizerTest extends Specification {
+
+    final RoleRegistry registry = new RoleRegistry()
+
+    final RoleBitSetAuthorizer authorizer = new RoleBitSetAuthorizer(registry)
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "authorize matches checking the role names"() {
+        given:
+        registry.registerAll(["ADMIN", "USER", "AUDITOR"])
+        def user = createUser(roles as Set)
+
+        expect:
+        authorizer.authorize(user, role, null) == expected
+
+        where:
+        roles                | role           | expected
+        ["ADMIN", "USER"]    | "ADMIN"        | true
+        ["ADMIN", "USER"]    | "AUDITOR"      | false
+        []                   | "USER"         | false
+        ["UNREGISTERED"]     | "UNREGISTERED" | true
+        ["USER"]             | "UNREGISTERED" | false
+    }
+
+    def "roles registered after the bitset was created are still authorized"() {
+        given:
+        registry.register("ADMIN")
+        def user = createUser(["ADMIN", "LATE"] as Set)
+        authorizer.authorize(user, "ADMIN", null)
+
+        when:
+        registry.register("LATE")
+
+        then:
+        authorizer.authorize(user, "LATE", null)
+        registry.bitSetOf(user).contains(registry.getId("LATE"))
+    }
+
+    def "bitset of a lazy user is computed once without materializing its roles"() {
+        given:
+        registry.registerAll(["ADMIN", "USER"])
+        int reads = 0
+        def user = new LazyInternalUser("test.user", "Test", "User", Optional.empty(),
+                { ImmutableSet.of() },
+                { Consumer<String> action -> reads++; ["ADMIN", "OTHER", "ADMIN"].each { action.accept(it) } },
+                Optional.empty())
+
+        when:
+        def results = ["ADMIN", "USER", "ADMIN"].collect { authorizer.authorize(user, it, null) }
+
+        then:
+        results == [true, false, true]
+        reads == 1
+        registry.bitSetOf(user).is(registry.bitSetOf(createUser(["ADMIN"] as Set)))
+
+        when: 'checking an unregistered role'
+        def other = authorizer.authorize(user, "OTHER", null)
+
+        then: 'the roles are materialized once and reused'
+        other
+        reads == 2
+        user.roles == ImmutableSet.of("ADMIN", "OTHER")
+        reads == 2
+    }
+
+    def "ids are dense and stable"() {
+        expect:
+        registry.register("A") == 0
+        registry.register("B") == 1
+        registry.register("A") == 0
+        registry.getId("B") == 1
+        registry.getId("C") == -1
+        registry.size() == 2
+    }
+
+    def "users with the same roles share a bitset"() {
+        given:
+        registry.registerAll(["ADMIN", "USER"])
+
+        expect:
+        registry.bitSetOf(createUser(["ADMIN"] as Set))
+                .is(registry.bitSetOf(createUser(["ADMIN"] as Set)))
+        registry.bitSetOf(createUser(["ADMIN", "OTHER"] as Set))
+                .is(registry.bitSetOf(createUser(["ADMIN"] as Set)))
+        !registry.bitSetOf(createUser(["USER"] as Set))
+                .is(registry.bitSetOf(createUser(["ADMIN"] as Set)))
+    }
+
+    def "scanner registers roles from resource annotations"() {
+        given:
+        def resourceInfo = Mock(ResourceInfo) {
+            getResourceClass() >> AnnotatedResource
+            getResourceMethod() >> AnnotatedResource.getMethod("get")
+        }
+
+        when:
+        registry.rolesAllowedScanner().configure(resourceInfo, Mock(FeatureContext))
+
+        then:
+        registry.getId("CLASS_ROLE") >= 0
+        registry.getId("METHOD_ROLE") >= 0
+        registry.size() == 2
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param roles Roles of the user.
+     * @return A new user with the supplied roles.
+     */
+    InternalUser createUser(Set<String> roles) {
+        return ImmutableInternalUser.builder()
+                .username("test.user")
+                .firstname("Test")
+                .lastname("User")
+                .roles(roles)
+                .build()
+    }
+
+    /** Resource annotated with roles. */
+    @RolesAllowed("CLASS_ROLE")
+    static class AnnotatedResource {
+        @RolesAllowed("METHOD_ROLE")
+        void get() {}
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.brightsparklabs.dropwizard.bundles.auth.external.ExternallyAuthenticatedAuthFilterFactory.HttpHeadersAuthFilterFactory
+import com.brightsparklabs.dropwizard.bundles.auth.external.ExternallyAuthenticatedAuthFilterFactory.JwtAuthFilterFactory
+import com.codahale.metrics.MetricRegistry
+import io.dropwizard.auth.oauth.OAuthCredentialAuthFilter
+import io.jsonwebtoken.Jwts
+import jakarta.ws.rs.WebApplicationException
+import jakarta.ws.rs.core.SecurityContext
+import org.glassfish.jersey.internal.MapPropertiesDelegate
+import org.glassfish.jersey.server.ContainerRequest
+import org.glassfish.jersey.server.ResourceConfig
+import spock.lang.Specification
+
+import java.security.KeyPair
+import java.security.KeyPairGenerator
+
+import static com.brightsparklabs.dropwizard.bundles.auth.external.CredentialMatcher.Presence.*
+
+/**
+ * Unit tests for {@link RoutingChainedAuthFilter}.
+ *
+ * @author brightSPARK Labs
+ */
+class RoutingChainedAuthFilterTest extends Specification {
+
+    final PrincipalConverter principalConverter = new IdentityPrincipalConverter()
+
+    final MetricRegistry metricRegistry = new MetricRegistry()
+
+    final KeyPair keyPair = createKeyPair()
+
+    final AuthenticationEventListener headersListener = Mock(AuthenticationEventListener)
+
+    final AuthenticationEventListener jwtListener = Mock(AuthenticationEventListener)
+
+    RoutingChainedAuthFilter<InternalUser> filter
+
+    def setup() {
+        def headersFilter = new HeaderFieldsAuthFilter.Builder<InternalUser>()
+                .setAuthenticator(new HeaderFieldsAuthenticator<>(principalConverter, [headersListener]))
+                .buildAuthFilter()
+        def jwtFilter = new OAuthCredentialAuthFilter.Builder<InternalUser>()
+                .setAuthenticator(new JwtAuthenticator<InternalUser>(principalConverter,
+                        Base64.encoder.encodeToString(keyPair.public.encoded), [jwtListener]))
+                .setPrefix("Bearer")
+                .buildAuthFilter()
+        filter = new RoutingChainedAuthFilter<>(
+                [headersFilter, jwtFilter],
+                [new HttpHeadersAuthFilterFactory().buildCredentialMatcher(),
+                 new JwtAuthFilterFactory().buildCredentialMatcher()],
+                metricRegistry.timer("filter"),
+                metricRegistry.histogram("successful-delegate"),
+                metricRegistry.meter("ordered-trial"),
+                "Basic",
+                "realm")
+    }
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "bearer token is sent straight to the jwt delegate"() {
+        given:
+        def request = createRequest(["Authorization": "Bearer ${createJwt("jwt.user")}"])
+
+        when:
+        filter.filter(request)
+
+        then:
+        request.securityContext.userPrincipal.username == "jwt.user"
+        1 * jwtListener.onAuthenticationSuccess(_)
+        0 * headersListener._
+        metricRegistry.meter("ordered-trial").count == 0
+    }
+
+    def "header fields are sent straight to the httpHeaders delegate"() {
+        given:
+        def request = createRequest(createUserHeaders("headers.user"))
+
+        when:
+        filter.filter(request)
+
+        then:
+        request.securityContext.userPrincipal.username == "headers.user"
+        1 * headersListener.onAuthenticationSuccess(_)
+        0 * jwtListener._
+        metricRegistry.meter("ordered-trial").count == 0
+    }
+
+    def "ambiguous credentials fall back to trying each delegate in turn"() {
+        given: 'invalid header fields and a valid bearer token'
+        def headers = ["X-Auth-Username": "headers.user", "Authorization": "Bearer ${createJwt("jwt.user")}"]
+        def request = createRequest(headers)
+
+        when:
+        filter.filter(request)
+
+        then:
+        request.securityContext.userPrincipal.username == "jwt.user"
+        1 * headersListener.onAuthenticationDenied(_)
+        1 * jwtListener.onAuthenticationSuccess(_)
+        metricRegistry.meter("ordered-trial").count == 1
+    }
+
+    def "requests without credentials are rejected by the first delegate only"() {
+        given:
+        def request = createRequest([:])
+
+        when:
+        filter.filter(request)
+
+        then:
+        thrown WebApplicationException
+        1 * headersListener.onAuthenticationDenied(_)
+        0 * jwtListener._
+        metricRegistry.histogram("successful-delegate").count == 0
+    }
+
+    def "jwt credential matcher #description"() {
+        given:
+        def matcher = new JwtAuthFilterFactory().buildCredentialMatcher()
+
+        expect:
+        matcher.match(createRequest(headers, query)) == expected
+
+        where:
+        description                 | headers                              | query                | expected
+        "matches bearer prefix"     | ["Authorization": "Bearer abc"]      | ""                   | PRESENT
+        "ignores prefix case"       | ["Authorization": "bearer abc"]      | ""                   | PRESENT
+        "matches query parameter"   | [:]                                  | "?access_token=abc"  | PRESENT
+        "rejects other schemes"     | ["Authorization": "Basic abc"]       | ""                   | ABSENT
+        "rejects partial prefix"    | ["Authorization": "BearerX abc"]     | ""                   | ABSENT
+        "rejects missing header"    | [:]                                  | ""                   | ABSENT
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @return A new RSA 2048-bit key pair.
+     */
+    def createKeyPair() {
+        final KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA")
+        generator.initialize(2048)
+        return generator.generateKeyPair()
+    }
+
+    /**
+     * @param username Username of the user.
+     * @return A new JWT for the user signed with {@link #keyPair}.
+     */
+    String createJwt(String username) {
+        return Jwts.builder()
+                .claim(JwtAuthenticator.CLAIM_FIELD_USERNAME, username)
+                .claim(JwtAuthenticator.CLAIM_FIELD_FIRSTNAME, "Test")
+                .claim(JwtAuthenticator.CLAIM_FIELD_LASTNAME, "User")
+                .signWith(keyPair.private)
+                .compact()
+    }
+
+    /**
+     * @param username Username of the user.
+     * @return Header fields describing the user.
+     */
+    Map<String, String> createUserHeaders(String username) {
+        return [
+            "X-Auth-Username"   : username,
+            "X-Auth-Given-Name" : "Test",
+            "X-Auth-Family-Name": "User",
+        ]
+    }
+
+    /**
+     * @param headers Header fields of the request.
+     * @param query Query string of the request (including the leading '?').
+     * @return A new unauthenticated request.
+     */
+    ContainerRequest createRequest(Map<String, String> headers, String query = "") {
+        def request = new ContainerRequest(
+                URI.create("http://localhost/"),
+                URI.create("http://localhost/resource${query}"),
+                "GET",
+                Mock(SecurityContext),
+                new MapPropertiesDelegate(),
+                new ResourceConfig())
+        headers.each { name, value -> request.headers.putSingle(name, value.toString()) }
+        return request
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import io.jsonwebtoken.io.DeserializationException
+import spock.lang.Specification
+
+/**
+ * Unit tests for {@link StreamingClaimsDeserializer}.
+ *
+ * @author brightSPARK Labs
+ */
+class StreamingClaimsDeserializerTest extends Specification {
+
+    final StreamingClaimsDeserializer deserializer =
+            new StreamingClaimsDeserializer(["name"], ["roles"])
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "retained and lazy members are read and all others skipped"() {
+        when:
+        def claims = deserialize('{"sub": "user", "name": "Test", "other": {"a": 1}, "roles": ["R1"]}')
+
+        then:
+        claims.keySet() == ["sub", "name", "roles"] as Set
+        claims.sub == "user"
+        claims.name == "Test"
+        claims.roles instanceof StreamingClaimsDeserializer.RawJson
+        claims.roles.toString() == '["R1"]'
+    }
+
+    def "duplicate members are rejected: #json"() {
+        when:
+        deserialize(json)
+
+        then:
+        thrown DeserializationException
+
+        where:
+        json << [
+            '{"sub": "user", "sub": "admin"}',
+            '{"roles": ["R1"], "roles": ["ADMIN"]}',
+            '{"other": 1, "other": 2}',
+        ]
+    }
+
+    def "content after the object is rejected: #json"() {
+        when:
+        deserialize(json)
+
+        then:
+        thrown DeserializationException
+
+        where:
+        json << [
+            '{"sub": "user"} {"sub": "admin"}',
+            '{"sub": "user"}]',
+            '{"sub": "user"} 1',
+        ]
+    }
+
+    def "whitespace after the object is accepted"() {
+        expect:
+        deserialize('{"sub": "user"}  \n').sub == "user"
+    }
+
+    // -----------------------------------------------------------------------------
+    // FIXTURES
+    // -----------------------------------------------------------------------------
+
+    /**
+     * @param json The JSON to deserialize.
+     * @return The deserialized members.
+     */
+    Map<String, ?> deserialize(String json) {
+        return deserializer.deserialize(new StringReader(json))
+    }
+}
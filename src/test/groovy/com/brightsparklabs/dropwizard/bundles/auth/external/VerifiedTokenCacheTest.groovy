@@ -0,0 +1,108 @@
+/*
+ * Maintained by brightSPARK Labs.
+ * www.brightsparklabs.com
+ *
+ * Refer to LICENSE at repository root for license details.
+ */
+
+package com.brightsparklabs.dropwizard.bundles.auth.external
+
+import com.github.benmanes.caffeine.cache.Ticker
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+import java.util.concurrent.TimeUnit
+
+/**
+ * Unit tests for {@link VerifiedTokenCache}.
+ *
+ * @author brightSPARK Labs
+ */
+class VerifiedTokenCacheTest extends Specification {
+
+    /** Fixed time the cache considers to be now */
+    final Instant now = Instant.parse("2030-01-01T00:00:00Z")
+
+    /** Elapsed time reported to the cache */
+    long elapsedNanos = 0
+
+    final Ticker ticker = { elapsedNanos } as Ticker
+
+    final InternalUser user = ImmutableInternalUser.builder()
+            .username("test.user")
+            .firstname("Test")
+            .lastname("User")
+            .build()
+
+    // -----------------------------------------------------------------------------
+    // TESTS
+    // -----------------------------------------------------------------------------
+
+    def "cached token is returned until it expires"() {
+        given:
+        def cache = new VerifiedTokenCache(10, Duration.ofHours(1), ticker, Clock.fixed(now, ZoneOffset.UTC))
+        cache.put("token", user, Optional.of(now.plusSeconds(10)))
+
+        when:
+        elapsedNanos = TimeUnit.SECONDS.toNanos(5)
+        def beforeExpiry = cache.get("token")
+        elapsedNanos = TimeUnit.SECONDS.toNanos(11)
+        def afterExpiry = cache.get("token")
+
+        then:
+        beforeExpiry.get().is(user)
+        !afterExpiry.isPresent()
+        !cache.get("other-token").isPresent()
+        cache.stats().hitCount() == 1
+        cache.stats().missCount() == 2
+    }
+
+    def "cached token is evicted after maximum ttl"() {
+        given:
+        def cache = new VerifiedTokenCache(10, Duration.ofSeconds(1), ticker, Clock.fixed(now, ZoneOffset.UTC))
+        cache.put("token", user, tokenExpiry)
+
+        when:
+        elapsedNanos = TimeUnit.SECONDS.toNanos(2)
+
+        then:
+        !cache.get("token").isPresent()
+
+        where:
+        tokenExpiry << [
+            Optional.empty(),
+            Optional.of(Instant.parse("2030-01-01T01:00:00Z"))
+        ]
+    }
+
+    def "token which has expired by the clock is a miss even if the cache still holds it"() {
+        given:
+        Instant clockNow = now
+        def clock = [instant: { clockNow }, getZone: { ZoneOffset.UTC }] as Clock
+        def cache = new VerifiedTokenCache(10, Duration.ofHours(1), ticker, clock)
+        cache.put("token", user, Optional.of(now.plusSeconds(10)))
+
+        when: 'the clock passes the token expiry before the ticker expires the entry'
+        clockNow = now.plusSeconds(11)
+        def result = cache.get("token")
+
+        then:
+        !result.isPresent()
+        cache.stats().hitCount() == 0
+        cache.stats().missCount() == 1
+    }
+
+    def "expired token is never cached"() {
+        given:
+        def cache = new VerifiedTokenCache(10, Duration.ofHours(1), ticker, Clock.fixed(now, ZoneOffset.UTC))
+
+        when:
+        cache.put("token", user, Optional.of(now.minusSeconds(1)))
+
+        then:
+        !cache.get("token").isPresent()
+    }
+}